@@ -1,32 +1,167 @@
 package main.config;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.Scheduled;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Класс AuthConfiguration
- * Конфигуратор информации по авторизациям
+ * Конфигуратор информации по авторизациям: id сессии -> id пользователя.
+ * Авторизация истекает, если сессией не пользовались auth.idleTimeout, и в
+ * любом случае через auth.absoluteTimeout после входа. Истёкшие авторизации
+ * удаляются фоновой очисткой, а при превышении auth.maxSessions - сначала
+ * истёкшие, затем самые давно неиспользуемые, сразу пачкой до 90%
+ * auth.maxSessions, чтобы следующие входы не платили за полный проход
  *
- * @version 1.0
+ * @version 1.2
  */
 @Configuration
 public class AuthConfiguration {
-    private final Map<String, Integer> authorizations;
+    // до какой доли auth.maxSessions сокращаются авторизации при превышении
+    private static final double EVICT_TO = 0.9;
 
-    public AuthConfiguration(Map<String, Integer> authorizations) {
-        this.authorizations = authorizations;
+    private final Map<String, Session> authorizations =
+            new ConcurrentHashMap<>();
+    private final long idleTimeout;
+    private final long absoluteTimeout;
+    private final int maxSessions;
+    private final ReentrantLock evicting = new ReentrantLock();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter expired;
+    private final Counter evicted;
+
+    public AuthConfiguration(
+            @Value("${auth.idleTimeout:1800000}") long idleTimeout,
+            @Value("${auth.absoluteTimeout:86400000}") long absoluteTimeout,
+            @Value("${auth.maxSessions:100000}") int maxSessions,
+            MeterRegistry meterRegistry) {
+        this.idleTimeout = idleTimeout;
+        this.absoluteTimeout = absoluteTimeout;
+        this.maxSessions = maxSessions;
+        hits = meterRegistry.counter("auth.sessions.lookups", "result", "hit");
+        misses = meterRegistry.counter("auth.sessions.lookups",
+                "result", "miss");
+        expired = meterRegistry.counter("auth.sessions.evictions",
+                "cause", "expired");
+        evicted = meterRegistry.counter("auth.sessions.evictions",
+                "cause", "size");
+        Gauge.builder("auth.sessions.active", authorizations, Map::size)
+                .register(meterRegistry);
     }
 
     public void addAuth(String key, int value) {
-        authorizations.put(key, value);
+        authorizations.put(key, new Session(value, System.currentTimeMillis()));
+        // пока одни входы сокращают авторизации, другие их не ждут
+        if (authorizations.size() > maxSessions && evicting.tryLock()) {
+            try {
+                evictOverflow();
+            }
+            finally {
+                evicting.unlock();
+            }
+        }
     }
 
-    public Map<String, Integer> getAuths() {
-        return authorizations;
+    /**
+     * Метод getAuth
+     * Метод возвращает id пользователя, авторизованного в сессии, и
+     * продлевает авторизацию. Не блокирует других читателей
+     *
+     * @param key id сессии
+     * @return id пользователя или null, если сессия не авторизована или
+     * авторизация истекла
+     */
+    public Integer getAuth(String key) {
+        Session session = authorizations.get(key);
+        long now = System.currentTimeMillis();
+        if (session == null || isExpired(session, now)) {
+            misses.increment();
+            return null;
+        }
+        session.lastAccess = now;
+        hits.increment();
+        return session.userId;
     }
 
     public void deleteAuth(String key) {
         authorizations.remove(key);
     }
+
+    /**
+     * Метод sweep
+     * Метод удаляет истёкшие авторизации. Запускается по расписанию
+     * auth.sweepDelay
+     */
+    @Scheduled(fixedDelayString = "${auth.sweepDelay:60000}")
+    public void sweep() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, Session> entry : authorizations.entrySet())
+            if (isExpired(entry.getValue(), now)
+                    && authorizations.remove(entry.getKey(), entry.getValue()))
+                expired.increment();
+    }
+
+    // вызывается не чаще, чем раз на maxSessions * (1 - EVICT_TO) входов:
+    // один проход по авторизациям и сортировка времён последнего доступа
+    private void evictOverflow() {
+        long now = System.currentTimeMillis();
+        List<String> keys = new ArrayList<>();
+        List<Session> sessions = new ArrayList<>();
+        List<Long> accesses = new ArrayList<>();
+        for (Map.Entry<String, Session> entry : authorizations.entrySet()) {
+            Session session = entry.getValue();
+            if (isExpired(session, now)) {
+                if (authorizations.remove(entry.getKey(), session))
+                    expired.increment();
+                continue;
+            }
+            keys.add(entry.getKey());
+            sessions.add(session);
+            // время доступа меняется параллельно, поэтому запоминается
+            accesses.add(session.lastAccess);
+        }
+        int excess = authorizations.size() - (int) (maxSessions * EVICT_TO);
+        if (excess <= 0 || keys.isEmpty())
+            return;
+        long[] sorted = new long[accesses.size()];
+        for (int i = 0; i < sorted.length; i++)
+            sorted[i] = accesses.get(i);
+        Arrays.sort(sorted);
+        long threshold = sorted[Math.min(excess, sorted.length) - 1];
+        for (int i = 0; i < keys.size() && excess > 0; i++)
+            if (accesses.get(i) <= threshold
+                    && authorizations.remove(keys.get(i), sessions.get(i))) {
+                evicted.increment();
+                excess--;
+            }
+    }
+
+    private boolean isExpired(Session session, long now) {
+        return now - session.lastAccess > idleTimeout
+                || now - session.created > absoluteTimeout;
+    }
+
+    private static final class Session {
+        private final int userId;
+        private final long created;
+        private volatile long lastAccess;
+
+        private Session(int userId, long created) {
+            this.userId = userId;
+            this.created = created;
+            this.lastAccess = created;
+        }
+    }
 }
@@ -1,9 +1,10 @@
 package main.config;
 
-import main.model.helper.Account;
-import main.repository.UserRepository;
-import main.service.impl.UserServiceImpl;
+import main.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.autoconfigure.security.servlet
+        .EndpointRequest;
+import org.springframework.boot.actuate.health.HealthEndpoint;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -14,32 +15,35 @@ import org.springframework.security.config.annotation.web.configuration.
         EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.
         WebSecurityConfigurerAdapter;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.factory.PasswordEncoderFactories;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
-import java.util.List;
-
 /**
  * Класс BasicConfiguration
  * Конфигуратор авторизаций
  *
- * @version 1.0
+ * @version 1.2
  */
 @Configuration
 @EnableWebSecurity
 public class BasicConfiguration extends WebSecurityConfigurerAdapter {
     @Autowired
-    private UserRepository userRepository;
+    private UserService userService;
 
     /**
      * Метод configure(HttpSecurity http)
-     * Метод конфигурирует доступы: endpoints
+     * Метод конфигурирует доступы: endpoints. Endpoints actuator, кроме
+     * health, доступны только модераторам (роль ADMIN) по HTTP Basic
      */
     @Override
     protected void configure(HttpSecurity http) throws Exception {
         http
                 .csrf().disable()
                 .authorizeRequests()
+                .requestMatchers(EndpointRequest.to(HealthEndpoint.class))
+                .permitAll()
+                .requestMatchers(EndpointRequest.toAnyEndpoint())
+                .hasRole("ADMIN")
 //                .antMatchers(HttpMethod.GET,
 //                        "/api/post/moderation*", "/api/post/my*")
 //                .authenticated()
@@ -55,25 +59,25 @@ public class BasicConfiguration extends WebSecurityConfigurerAdapter {
 
     /**
      * Метод configure(AuthenticationManagerBuilder auth)
-     * Метод конфигурирует доступы: берёт информацию из БД
+     * Метод конфигурирует доступы: пользователи загружаются из БД по мере
+     * обращения
+     *
+     * @see main.service.impl.UserServiceImpl
      */
     @Override
     protected void configure(AuthenticationManagerBuilder auth)
             throws Exception {
-        UserServiceImpl service = new UserServiceImpl(userRepository);
-        List<Account> accounts = service.getAccounts();
-        for (Account account : accounts) {
-            String encodedPassword = passwordEncoder().
-                    encode(account.getPassword());
-            auth.inMemoryAuthentication()
-                    .passwordEncoder(passwordEncoder())
-                    .withUser(account.getName()).password(encodedPassword)
-                    .roles("ADMIN");
-        }
+        auth.userDetailsService(userService)
+                .passwordEncoder(passwordEncoder());
     }
 
+    /**
+     * Метод passwordEncoder
+     * Пароли проверяются по префиксу id кодировщика: {noop} - пароль из
+     * БД, который хранится открытым текстом, {bcrypt} - закодированный
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public static PasswordEncoder passwordEncoder() {
+        return PasswordEncoderFactories.createDelegatingPasswordEncoder();
     }
 }
@@ -0,0 +1,44 @@
+package main.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Класс StaticResourceConfiguration
+ * Конфигуратор отдачи статики фронта. Имена файлов в js, css, fonts и img
+ * содержат хэш содержимого (их так собирает фронт), поэтому браузеру
+ * разрешено кэшировать их на год без перепроверки. Если клиент принимает
+ * br или gzip, отдаётся заранее сжатая при сборке копия файла
+ *
+ * @version 1.0
+ */
+@Configuration
+public class StaticResourceConfiguration implements WebMvcConfigurer {
+    private static final String[] FINGERPRINTED = {"js", "css", "fonts", "img"};
+
+    @Override
+    public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        for (String folder : FINGERPRINTED)
+            registry.addResourceHandler("/" + folder + "/**")
+                    .addResourceLocations("classpath:/static/" + folder + "/")
+                    .setCacheControl(new ImmutableCacheControl())
+                    .resourceChain(true)
+                    .addResolver(new EncodedResourceResolver());
+    }
+
+    // в этой версии Spring у CacheControl ещё нет директивы immutable
+    private static final class ImmutableCacheControl extends CacheControl {
+        private final String value = CacheControl.maxAge(365, TimeUnit.DAYS)
+                .cachePublic().getHeaderValue() + ", immutable";
+
+        @Override
+        public String getHeaderValue() {
+            return value;
+        }
+    }
+}
@@ -10,7 +10,6 @@ import main.service.AuthService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
-import java.io.IOException;
 
 /**
  * Класс ApiAuthController
@@ -86,7 +85,7 @@ public class ApiAuthController {
      * GET запрос /api/auth/captcha
      */
     @GetMapping("/captcha")
-    public CaptchaResponse captcha() throws IOException {
+    public CaptchaResponse captcha() {
         return authService.captcha();
     }
 
@@ -7,9 +7,11 @@ import main.model.request.postids.PostModerationRequest;
 import main.model.response.others.*;
 import main.model.response.results.ResultResponse;
 import main.service.GeneralService;
+import main.service.impl.ContentVersions;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
@@ -25,6 +27,8 @@ import java.io.IOException;
 public class ApiGeneralController {
     @Autowired
     private GeneralService generalService;
+    @Autowired
+    private ContentVersions contentVersions;
 
     /**
      * Метод getCommonData
@@ -74,7 +78,10 @@ public class ApiGeneralController {
      */
     @GetMapping("/tag")
     public TagsResponse getListOfTags(
-            @RequestParam(required = false) String query) {
+            @RequestParam(required = false) String query,
+            WebRequest webRequest) {
+        if (webRequest.checkNotModified(contentVersions.catalogTag()))
+            return null;
         return generalService.getListOfTags(query);
     }
 
@@ -101,7 +108,10 @@ public class ApiGeneralController {
      */
     @GetMapping("/calendar")
     public YearsPostsResponse numberOfPosts(
-            @RequestParam(required = false) Integer year) {
+            @RequestParam(required = false) Integer year,
+            WebRequest webRequest) {
+        if (webRequest.checkNotModified(contentVersions.catalogTag()))
+            return null;
         return generalService.numberOfPosts(year);
     }
 
@@ -2,17 +2,23 @@ package main.controller;
 
 import main.model.request.others.PostRequest;
 import main.model.request.postids.PostIdRequest;
+import main.model.response.others.CommentsResponse;
 import main.model.response.others.ThePosts;
 import main.model.response.results.ResultResponse;
 import main.service.PostService;
+import main.service.impl.ContentVersions;
+import main.service.impl.CurrentPrincipal;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 /**
  * Класс ApiPostController
- * REST-контроллер, обрабатывает все запросы /api/post/*
+ * REST-контроллер, обрабатывает все запросы /api/post/*. GET запросы
+ * отвечают 304 Not Modified, если содержимое не менялось
  *
  * @version 1.2
+ * @see ContentVersions
  */
 
 @RestController
@@ -20,6 +26,10 @@ import org.springframework.web.bind.annotation.*;
 public class ApiPostController {
     @Autowired
     PostService postService;
+    @Autowired
+    private ContentVersions contentVersions;
+    @Autowired
+    private CurrentPrincipal currentPrincipal;
 
     /**
      * Метод listOfPosts
@@ -30,13 +40,20 @@ public class ApiPostController {
      * @param limit количество постов, которое надо вывести
      * @param mode режим вывода (сортировка): popular, best, early либо recent, если
      *             другие значения не были указаны
+     * @param cursor курсор следующей страницы: пустая строка - первая
+     *               страница, если не передан - вывод по offset
      */
     @GetMapping
     public ThePosts listOfPosts(
-            @RequestParam int offset,
-            @RequestParam int limit,
-            @RequestParam String mode) {
-        return postService.getListOfPostResponse(offset, limit, mode);
+            @RequestParam(defaultValue = "0") int offset,
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam String mode,
+            @RequestParam(required = false) String cursor,
+            WebRequest webRequest) {
+        if (webRequest.checkNotModified(
+                contentVersions.feedTag(currentPrincipal.getId())))
+            return null;
+        return postService.getListOfPostResponse(offset, limit, mode, cursor);
     }
 
     /**
@@ -47,13 +64,20 @@ public class ApiPostController {
      * @param offset сдвиг от 0 для постраничного вывода
      * @param limit количество постов, которое надо вывести
      * @param query поисковый запрос
+     * @param cursor курсор следующей страницы: пустая строка - первая
+     *               страница, если не передан - вывод по offset
      */
     @GetMapping("/search")
     public ThePosts searchForPosts(
-            @RequestParam int offset,
-            @RequestParam int limit,
-            @RequestParam String query) {
-        return postService.searchForPostResponse(offset, limit, query);
+            @RequestParam(defaultValue = "0") int offset,
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam String query,
+            @RequestParam(required = false) String cursor,
+            WebRequest webRequest) {
+        if (webRequest.checkNotModified(
+                contentVersions.feedTag(currentPrincipal.getId())))
+            return null;
+        return postService.searchForPostResponse(offset, limit, query, cursor);
     }
 
     /**
@@ -64,13 +88,20 @@ public class ApiPostController {
      * @param offset сдвиг от 0 для постраничного вывода
      * @param limit количество постов, которое надо вывести
      * @param date дата в формате "2019-10-15"
+     * @param cursor курсор следующей страницы: пустая строка - первая
+     *               страница, если не передан - вывод по offset
      */
     @GetMapping("/byDate")
     public ThePosts postsByDate(
-            @RequestParam int offset,
-            @RequestParam int limit,
-            @RequestParam String date) {
-        return postService.getPostsByDate(offset, limit, date);
+            @RequestParam(defaultValue = "0") int offset,
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam String date,
+            @RequestParam(required = false) String cursor,
+            WebRequest webRequest) {
+        if (webRequest.checkNotModified(
+                contentVersions.feedTag(currentPrincipal.getId())))
+            return null;
+        return postService.getPostsByDate(offset, limit, date, cursor);
     }
 
     /**
@@ -81,13 +112,20 @@ public class ApiPostController {
      * @param offset сдвиг от 0 для постраничного вывода
      * @param limit количество постов, которое надо вывести
      * @param tag тэг, по которому нужно вывести все посты
+     * @param cursor курсор следующей страницы: пустая строка - первая
+     *               страница, если не передан - вывод по offset
      */
     @GetMapping("/byTag")
     public ThePosts postsByTag(
-            @RequestParam int offset,
-            @RequestParam int limit,
-            @RequestParam String tag) {
-        return postService.getPostsByTag(offset, limit, tag);
+            @RequestParam(defaultValue = "0") int offset,
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam String tag,
+            @RequestParam(required = false) String cursor,
+            WebRequest webRequest) {
+        if (webRequest.checkNotModified(
+                contentVersions.feedTag(currentPrincipal.getId())))
+            return null;
+        return postService.getPostsByTag(offset, limit, tag, cursor);
     }
 
     /**
@@ -98,13 +136,20 @@ public class ApiPostController {
      * @param offset сдвиг от 0 для постраничного вывода
      * @param limit количество постов, которое надо вывести
      * @param status статус модерации: new, declined или accepted
+     * @param cursor курсор следующей страницы: пустая строка - первая
+     *               страница, если не передан - вывод по offset
      */
     @GetMapping("/moderation")
     public ThePosts listOfPostsForModeration(
-            @RequestParam int offset,
-            @RequestParam int limit,
-            @RequestParam String status) {
-        return postService.getPostsForModeration(offset, limit, status);
+            @RequestParam(defaultValue = "0") int offset,
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam String status,
+            @RequestParam(required = false) String cursor,
+            WebRequest webRequest) {
+        if (webRequest.checkNotModified(
+                contentVersions.feedTag(currentPrincipal.getId())))
+            return null;
+        return postService.getPostsForModeration(offset, limit, status, cursor);
     }
 
     /**
@@ -115,13 +160,20 @@ public class ApiPostController {
      * @param offset сдвиг от 0 для постраничного вывода
      * @param limit количество постов, которое надо вывести
      * @param status статус модерации: inactive, pending, declined или published
+     * @param cursor курсор следующей страницы: пустая строка - первая
+     *               страница, если не передан - вывод по offset
      */
     @GetMapping("/my")
     public ThePosts listOfMyPosts(
-            @RequestParam int offset,
-            @RequestParam int limit,
-            @RequestParam String status) {
-        return postService.getMyPosts(offset, limit, status);
+            @RequestParam(defaultValue = "0") int offset,
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam String status,
+            @RequestParam(required = false) String cursor,
+            WebRequest webRequest) {
+        if (webRequest.checkNotModified(
+                contentVersions.feedTag(currentPrincipal.getId())))
+            return null;
+        return postService.getMyPosts(offset, limit, status, cursor);
     }
 
     /**
@@ -133,10 +185,36 @@ public class ApiPostController {
      */
     @GetMapping("/{id}")
     public Object getPost(
-            @PathVariable(value = "id") int id) {
+            @PathVariable(value = "id") int id,
+            WebRequest webRequest) {
+        if (webRequest.checkNotModified(contentVersions.postTag(id)))
+            return null;
         return postService.getPost(id);
     }
 
+    /**
+     * Метод getComments
+     * Метод выводит страницу комментариев поста в порядке добавления
+     * GET запрос /api/post/{id}/comments
+     *
+     * @param id поста
+     * @param parentId не передан - все комментарии, 0 - комментарии к посту,
+     *                 иначе - ответы на комментарий
+     * @param cursor курсор следующей страницы, не передан - первая страница
+     * @param limit количество комментариев, которое надо вывести
+     */
+    @GetMapping("/{id}/comments")
+    public CommentsResponse getComments(
+            @PathVariable(value = "id") int id,
+            @RequestParam(required = false) Integer parentId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit,
+            WebRequest webRequest) {
+        if (webRequest.checkNotModified(contentVersions.postTag(id)))
+            return null;
+        return postService.getComments(id, parentId, cursor, limit);
+    }
+
     /**
      * Метод addPost
      * Метод отправляет данные поста, которые пользователь ввёл в форму публикации
@@ -1,25 +1,91 @@
 package main.controller;
 
-import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.StreamUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
-import javax.servlet.ServletContext;
+import javax.annotation.PostConstruct;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPOutputStream;
 
+/**
+ * Класс DefaultController
+ * Отдаёт страницу фронта для / и всех ссылок внутрь приложения. Страница
+ * статическая, поэтому читается при старте вместе со сжатой копией и
+ * ETag и отдаётся из памяти без шаблонизатора. У сжатой копии свой ETag
+ *
+ * @version 1.2
+ */
 @Controller
 public class DefaultController {
-    @Autowired
-    private ServletContext servletContext;
+    private static final MediaType HTML =
+            MediaType.parseMediaType("text/html;charset=UTF-8");
+
+    private byte[] page;
+    private byte[] gzippedPage;
+    private String etag;
+    private String gzippedEtag;
+
+    @PostConstruct
+    public void load() throws IOException {
+        try (InputStream input =
+                     new ClassPathResource("templates/index.html")
+                             .getInputStream()) {
+            page = StreamUtils.copyToByteArray(input);
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(output)) {
+            gzip.write(page);
+        }
+        gzippedPage = output.toByteArray();
+        String hash = DigestUtils.md5DigestAsHex(page);
+        etag = "\"" + hash + "\"";
+        gzippedEtag = "\"" + hash + "-gz\"";
+    }
 
     @RequestMapping("/")
-    public String index() {
-        return "index";
+    public ResponseEntity<byte[]> index(WebRequest request) {
+        return page(request);
     }
 
     @RequestMapping(
             method = {RequestMethod.OPTIONS, RequestMethod.GET},
             value = "/**/{path:[^\\.]*}")
-    public String redirectToIndex() {
-        return "index";
+    public ResponseEntity<byte[]> redirectToIndex(WebRequest request) {
+        return page(request);
+    }
+
+    /**
+     * Метод page
+     * Метод отдаёт страницу, сжатую, если клиент принимает gzip. Страница
+     * перепроверяется при каждой загрузке, т.к. ссылается на файлы сборки,
+     * поэтому Cache-Control и Vary есть и в ответе 304
+     */
+    private ResponseEntity<byte[]> page(WebRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        boolean gzip = accept != null && accept.contains("gzip");
+        if (request.checkNotModified(gzip ? gzippedEtag : etag))
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .cacheControl(CacheControl.noCache())
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                    .build();
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(HTML)
+                .cacheControl(CacheControl.noCache())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (!gzip)
+            return response.body(page);
+        return response.header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                .body(gzippedPage);
     }
 }
@@ -0,0 +1,161 @@
+package main.controller;
+
+import main.service.impl.LocalImageStorage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Класс ImageController
+ * Контроллер отдаёт изображения из LocalImageStorage. Имя файла - хэш
+ * содержимого, поэтому файл никогда не меняется: ETag равен хэшу, а
+ * браузеру разрешено кэшировать файл на год. Поддерживаются запросы
+ * части файла (Range). Файл передаётся без копирования в память:
+ * через sendfile Tomcat, если он доступен, иначе FileChannel.transferTo
+ *
+ * @version 1.0
+ */
+@Controller
+@ConditionalOnProperty(name = "image.storage", havingValue = "local")
+public class ImageController {
+    private static final String CACHE_CONTROL =
+            "public, max-age=31536000, immutable";
+    private static final String SENDFILE = "org.apache.tomcat.sendfile";
+
+    @Autowired
+    private LocalImageStorage localImageStorage;
+
+    /**
+     * Метод getImage
+     * GET запрос /upload/ab/cd/abcd....jpg
+     */
+    @GetMapping(LocalImageStorage.URL_PREFIX + "/{first}/{second}/{name:.+}")
+    public void getImage(@PathVariable String first,
+                         @PathVariable String second,
+                         @PathVariable String name,
+                         HttpServletRequest request,
+                         HttpServletResponse response) throws IOException {
+        Path file = localImageStorage.find(first, second, name);
+        if (file == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        String etag = "\"" + name.substring(0, name.indexOf('.')) + "\"";
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null && (ifNoneMatch.contains(etag)
+                || ifNoneMatch.trim().equals("*"))) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(
+                file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long start = 0;
+            long end = size - 1;
+            String range = request.getHeader(HttpHeaders.RANGE);
+            String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+            if (range != null && (ifRange == null || ifRange.equals(etag))) {
+                long[] bounds = parseRange(range, size);
+                if (bounds == null) {
+                    response.setHeader(HttpHeaders.CONTENT_RANGE,
+                            "bytes */" + size);
+                    response.sendError(HttpServletResponse
+                            .SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    return;
+                }
+                if (bounds.length == 2) {
+                    start = bounds[0];
+                    end = bounds[1];
+                    response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                    response.setHeader(HttpHeaders.CONTENT_RANGE,
+                            "bytes " + start + "-" + end + "/" + size);
+                }
+            }
+            response.setContentType(contentType(name));
+            response.setContentLengthLong(end - start + 1);
+            if (end < start)
+                return;
+
+            if (Boolean.TRUE.equals(
+                    request.getAttribute(SENDFILE + ".support"))) {
+                request.setAttribute(SENDFILE + ".filename", file.toString());
+                request.setAttribute(SENDFILE + ".start", start);
+                request.setAttribute(SENDFILE + ".end", end + 1);
+                return;
+            }
+            WritableByteChannel output =
+                    Channels.newChannel(response.getOutputStream());
+            long position = start;
+            while (position <= end) {
+                long sent = channel.transferTo(
+                        position, end - position + 1, output);
+                if (sent <= 0)
+                    break;
+                position += sent;
+            }
+        }
+    }
+
+    /**
+     * Метод parseRange
+     * Метод разбирает заголовок Range с одним диапазоном
+     *
+     * @return {начало, конец} включительно; пустой массив, если заголовок
+     * нужно проигнорировать (несколько диапазонов или другие единицы);
+     * null, если диапазон не попадает в файл
+     */
+    private static long[] parseRange(String range, long size) {
+        if (!range.startsWith("bytes=") || range.indexOf(',') >= 0)
+            return new long[0];
+        String spec = range.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0)
+            return new long[0];
+        try {
+            long start;
+            long end;
+            if (dash == 0) {
+                long suffix = Long.parseLong(spec.substring(1));
+                if (suffix <= 0)
+                    return null;
+                start = Math.max(size - suffix, 0);
+                end = size - 1;
+            }
+            else {
+                start = Long.parseLong(spec.substring(0, dash));
+                end = dash == spec.length() - 1 ? size - 1
+                        : Math.min(Long.parseLong(spec.substring(dash + 1)),
+                        size - 1);
+            }
+            return start > end || start >= size ? null
+                    : new long[]{start, end};
+        }
+        catch (NumberFormatException e) {
+            return new long[0];
+        }
+    }
+
+    private static String contentType(String name) {
+        if (name.endsWith(".png"))
+            return "image/png";
+        if (name.endsWith(".gif"))
+            return "image/gif";
+        return "image/jpeg";
+    }
+}
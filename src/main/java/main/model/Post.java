@@ -47,10 +47,40 @@ public class Post {
             nullable = false)
     private String text;
 
+    // анонс поста, вычисляется при сохранении, см. AnnounceExtractor
+
+    @Column(name = "announce")
+    private String announce;
+
+    // просмотры увеличиваются пакетно в PostViewCounter, поэтому при
+    // обновлении поста hibernate их не перезаписывает
+
     @Column(name = "view_count",
-            nullable = false)
+            nullable = false,
+            updatable = false)
     private int viewCount;
 
+    // счётчики голосов и комментариев изменяются только атомарными
+    // запросами в PostRepository, поэтому hibernate их не записывает
+
+    @Column(name = "likes_count",
+            nullable = false,
+            insertable = false,
+            updatable = false)
+    private int likesCount;
+
+    @Column(name = "dislikes_count",
+            nullable = false,
+            insertable = false,
+            updatable = false)
+    private int dislikesCount;
+
+    @Column(name = "comments_count",
+            nullable = false,
+            insertable = false,
+            updatable = false)
+    private int commentsCount;
+
     // у каждого поста только один автор
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -97,19 +127,12 @@ public class Post {
 //    @JoinTable(name = "tag2post",
 //            joinColumns = @JoinColumn(name = "post_id"),
 //            inverseJoinColumns = @JoinColumn(name = "tag_id"))
-    @ManyToMany(cascade = {CascadeType.ALL})
+    // связи с тэгами записываются только в PostTags, тэги добавляет
+    // TagDictionary, поэтому список здесь только читается
+
+    @ManyToMany
     @JoinTable(name = "tag2post",
         joinColumns = {@JoinColumn(name = "post_id")},
         inverseJoinColumns = {@JoinColumn(name = "tag_id")})
     private Set<Tag> tagSet = new HashSet<>();
-
-    public void addTag(Tag tag) {
-        tagSet.add(tag);
-        tag.getPostSet().add(this);
-    }
-
-    public void removeTag(Tag tag) {
-        tagSet.remove(tag);
-        tag.getPostSet().remove(this);
-    }
 }
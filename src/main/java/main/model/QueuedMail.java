@@ -0,0 +1,42 @@
+package main.model;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.persistence.*;
+import java.util.Date;
+
+@Entity
+@Table(name = "mail_queue")
+@Getter
+@Setter
+public class QueuedMail {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private int id;
+
+    @Column(name = "recipient", nullable = false)
+    private String recipient;
+
+    @Column(name = "subject", nullable = false)
+    private String subject;
+
+    @Column(columnDefinition = "TEXT", name = "text", nullable = false)
+    private String text;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "next_attempt", nullable = false)
+    private Date nextAttempt;
+
+    @Column(name = "last_error")
+    private String lastError;
+
+    // метка отправки, которая забрала письмо, см. QueuedMailRepository
+
+    @Column(name = "claim")
+    private String claim;
+}
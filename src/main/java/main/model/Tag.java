@@ -22,14 +22,4 @@ public class Tag {
 
     @ManyToMany(mappedBy = "tagSet")
     private Set<Post> postSet = new HashSet<>();
-
-    public void addPost(Post post) {
-        postSet.add(post);
-        post.getTagSet().add(this);
-    }
-
-    public void removePost(Post post) {
-        postSet.remove(post);
-        post.getTagSet().remove(this);
-    }
 }
@@ -45,6 +45,14 @@ public class User {
     @Column(columnDefinition="TEXT", name = "photo")
     private String photo;
 
+    // аватар 36 пикселей - photo, крупные - для экранов высокой плотности
+
+    @Column(columnDefinition="TEXT", name = "photo_72")
+    private String photo72;
+
+    @Column(columnDefinition="TEXT", name = "photo_144")
+    private String photo144;
+
     // у пользователя может быть много постов
 
     @OneToMany(mappedBy = "user",
@@ -1,13 +0,0 @@
-package main.model.helper;
-
-import lombok.AllArgsConstructor;
-import lombok.Getter;
-import lombok.Setter;
-
-@Getter
-@Setter
-@AllArgsConstructor
-public class Account {
-    private String name;
-    private String password;
-}
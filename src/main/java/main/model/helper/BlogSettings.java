@@ -0,0 +1,49 @@
+package main.model.helper;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import main.model.GlobalSetting;
+
+import java.util.List;
+
+/**
+ * Класс BlogSettings
+ * Неизменяемый снимок глобальных настроек блога из таблицы global_settings
+ *
+ * @version 1.0
+ */
+@Getter
+@AllArgsConstructor
+public class BlogSettings {
+    private final boolean multiUserMode;
+    private final boolean postPremoderation;
+    private final boolean statisticsIsPublic;
+
+    /**
+     * Метод of
+     * Метод создаёт снимок по строкам таблицы: значение "YES" - включено,
+     * остальные значения и отсутствующие строки - выключено
+     */
+    public static BlogSettings of(List<GlobalSetting> settings) {
+        boolean multiUserMode = false;
+        boolean postPremoderation = false;
+        boolean statisticsIsPublic = false;
+        for (GlobalSetting setting : settings) {
+            boolean value = setting.getValue().equals("YES");
+            switch (setting.getCode()) {
+                case "MULTIUSER_MODE":
+                    multiUserMode = value;
+                    break;
+                case "POST_PREMODERATION":
+                    postPremoderation = value;
+                    break;
+                case "STATISTICS_IS_PUBLIC":
+                    statisticsIsPublic = value;
+                    break;
+                default:
+            }
+        }
+        return new BlogSettings(multiUserMode, postPremoderation,
+                statisticsIsPublic);
+    }
+}
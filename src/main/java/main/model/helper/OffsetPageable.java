@@ -0,0 +1,67 @@
+package main.model.helper;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Класс OffsetPageable
+ * Параметры вывода на страницу по произвольному смещению: выборка
+ * начинается ровно с offset, даже если он не кратен размеру страницы
+ *
+ * @version 1.0
+ * @see org.springframework.data.domain.Pageable
+ */
+public class OffsetPageable implements Pageable {
+    private final long offset;
+    private final int size;
+
+    public OffsetPageable(long offset, int size) {
+        if (offset < 0)
+            throw new IllegalArgumentException("offset < 0");
+        if (size < 1)
+            throw new IllegalArgumentException("size < 1");
+        this.offset = offset;
+        this.size = size;
+    }
+
+    @Override
+    public int getPageNumber() {
+        return (int) (offset / size);
+    }
+
+    @Override
+    public int getPageSize() {
+        return size;
+    }
+
+    @Override
+    public long getOffset() {
+        return offset;
+    }
+
+    @Override
+    public Sort getSort() {
+        return Sort.unsorted();
+    }
+
+    @Override
+    public Pageable next() {
+        return new OffsetPageable(offset + size, size);
+    }
+
+    @Override
+    public Pageable previousOrFirst() {
+        return hasPrevious() ? new OffsetPageable(Math.max(offset - size, 0),
+                size) : first();
+    }
+
+    @Override
+    public Pageable first() {
+        return new OffsetPageable(0, size);
+    }
+
+    @Override
+    public boolean hasPrevious() {
+        return offset > 0;
+    }
+}
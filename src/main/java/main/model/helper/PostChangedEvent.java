@@ -0,0 +1,57 @@
+package main.model.helper;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import main.model.Post;
+import main.model.Tag;
+
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Класс PostChangedEvent
+ * Событие приложения: пост создан, изменён, прошёл модерацию или наступило
+ * время его публикации. По нему обновляются структуры в памяти, построенные
+ * по опубликованным постам
+ *
+ * @version 1.0
+ */
+@Getter
+@AllArgsConstructor
+public class PostChangedEvent {
+    private final int postId;
+    private final int userId;
+
+    // пост доступен для чтения: активен, принят и время публикации наступило
+    private final boolean published;
+    private final Date time;
+    private final String title;
+    private final String text;
+    private final Set<String> tags;
+
+    /**
+     * Метод of
+     * Метод создаёт событие по текущему состоянию поста
+     */
+    public static PostChangedEvent of(Post post) {
+        Set<String> tags = new HashSet<>();
+        for (Tag tag : post.getTagSet())
+            tags.add(tag.getName());
+        return of(post, tags);
+    }
+
+    /**
+     * Метод of
+     * Метод создаёт событие по текущему состоянию поста с уже известными
+     * именами тэгов, не загружая тэги поста
+     */
+    public static PostChangedEvent of(Post post, Set<String> tags) {
+        boolean published = post.isActive()
+                && post.getModerationStatus() == PostStatus.ACCEPTED
+                && !post.getTime().after(new Date());
+        return new PostChangedEvent(post.getId(), post.getUser().getId(),
+                published, post.getTime(), post.getTitle(), post.getText(),
+                tags);
+    }
+}
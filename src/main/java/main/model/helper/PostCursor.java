@@ -0,0 +1,77 @@
+package main.model.helper;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+/**
+ * Класс PostCursor
+ * Курсор постраничного вывода постов: значение ключа сортировки (время в
+ * миллисекундах или счётчик) и id последнего выведенного поста. Клиенту
+ * передаётся в виде непрозрачной строки
+ *
+ * @version 1.0
+ */
+@Getter
+@AllArgsConstructor
+public class PostCursor {
+    // заведомо позднее любого поста время, которое MySQL хранит без проблем
+    private static final long LATEST_TIME = 221845392000000L;
+
+    private final long value;
+    private final int id;
+
+    /**
+     * Метод firstDescending
+     * Курсор начала выборки при сортировке по убыванию
+     */
+    public static PostCursor firstDescending(boolean byTime) {
+        return new PostCursor(byTime ? LATEST_TIME : Integer.MAX_VALUE,
+                Integer.MAX_VALUE);
+    }
+
+    /**
+     * Метод firstAscending
+     * Курсор начала выборки при сортировке по возрастанию
+     */
+    public static PostCursor firstAscending() {
+        return new PostCursor(0, 0);
+    }
+
+    public Date getTime() {
+        return new Date(value);
+    }
+
+    public int getScore() {
+        return (int) value;
+    }
+
+    public String encode() {
+        String raw = value + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Метод decode
+     * Восстанавливает курсор из строки, полученной от клиента
+     *
+     * @param cursor строка курсора, м.б. пустой для первой страницы
+     * @return курсор или null, если передана пустая строка
+     * @throws IllegalArgumentException если строка не является курсором
+     */
+    public static PostCursor decode(String cursor) {
+        if (cursor == null || cursor.isEmpty())
+            return null;
+        String raw = new String(Base64.getUrlDecoder().decode(cursor),
+                StandardCharsets.UTF_8);
+        int separator = raw.indexOf(':');
+        if (separator < 0)
+            throw new IllegalArgumentException("Malformed cursor");
+        return new PostCursor(Long.parseLong(raw.substring(0, separator)),
+                Integer.parseInt(raw.substring(separator + 1)));
+    }
+}
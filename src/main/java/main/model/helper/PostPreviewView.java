@@ -0,0 +1,23 @@
+package main.model.helper;
+
+import java.util.Date;
+
+/**
+ * Интерфейс PostPreviewView
+ * Проекция строки ленты постов: данные поста, имя автора и счётчики,
+ * получаемые одним запросом без загрузки сущностей
+ *
+ * @version 1.0
+ */
+public interface PostPreviewView {
+    int getId();
+    Date getTime();
+    int getUserId();
+    String getUserName();
+    String getTitle();
+    String getAnnounce();
+    int getLikeCount();
+    int getDislikeCount();
+    int getCommentCount();
+    int getViewCount();
+}
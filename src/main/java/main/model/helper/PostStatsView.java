@@ -0,0 +1,18 @@
+package main.model.helper;
+
+import java.util.Date;
+
+/**
+ * Интерфейс PostStatsView
+ * Проекция поста для статистики: автор, время публикации и счётчики
+ *
+ * @version 1.0
+ */
+public interface PostStatsView {
+    int getId();
+    int getUserId();
+    Date getTime();
+    int getLikeCount();
+    int getDislikeCount();
+    int getViewCount();
+}
@@ -0,0 +1,14 @@
+package main.model.helper;
+
+import java.util.Date;
+
+/**
+ * Интерфейс PostTimeView
+ * Проекция поста: id и время публикации
+ *
+ * @version 1.0
+ */
+public interface PostTimeView {
+    int getId();
+    Date getTime();
+}
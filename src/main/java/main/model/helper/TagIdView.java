@@ -0,0 +1,12 @@
+package main.model.helper;
+
+/**
+ * Интерфейс TagIdView
+ * Проекция тэга: id и имя
+ *
+ * @version 1.0
+ */
+public interface TagIdView {
+    int getId();
+    String getName();
+}
@@ -0,0 +1,12 @@
+package main.model.helper;
+
+/**
+ * Интерфейс TagLinkView
+ * Проекция связи поста с тэгом: id поста и имя тэга
+ *
+ * @version 1.0
+ */
+public interface TagLinkView {
+    int getPostId();
+    String getName();
+}
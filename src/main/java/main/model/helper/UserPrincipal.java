@@ -0,0 +1,27 @@
+package main.model.helper;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import main.model.User;
+
+/**
+ * Класс UserPrincipal
+ * Неизменяемые данные авторизованного пользователя, нужные почти каждому
+ * запросу: id, имя, e-mail, фото и признак модератора
+ *
+ * @version 1.0
+ */
+@Getter
+@AllArgsConstructor
+public class UserPrincipal {
+    private final int id;
+    private final String name;
+    private final String email;
+    private final String photo;
+    private final boolean moderator;
+
+    public static UserPrincipal of(User user) {
+        return new UserPrincipal(user.getId(), user.getName(),
+                user.getEmail(), user.getPhoto(), user.isModerator());
+    }
+}
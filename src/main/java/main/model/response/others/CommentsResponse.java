@@ -0,0 +1,14 @@
+package main.model.response.others;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+import main.model.response.ids.CommentResponse;
+
+import java.util.List;
+
+@Data
+public class CommentsResponse {
+    private List<CommentResponse> comments;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String nextCursor;
+}
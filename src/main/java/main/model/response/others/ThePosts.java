@@ -1,5 +1,6 @@
 package main.model.response.others;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 
@@ -7,4 +8,6 @@ import lombok.EqualsAndHashCode;
 @Data
 public class ThePosts extends PostsResponse {
     private int count;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String nextCursor;
 }
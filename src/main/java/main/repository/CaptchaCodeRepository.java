@@ -11,7 +11,7 @@ import org.springframework.transaction.annotation.Transactional;
 /**
  * Интрефейс CaptchaCodeRepository. Слой для работы с БД и сущностью CaptchaCode
  *
- * @version 1.0
+ * @version 1.1
  * @see org.springframework.data.jpa.repository.JpaRepository
  */
 @Repository
@@ -29,12 +29,16 @@ public interface CaptchaCodeRepository extends JpaRepository<CaptchaCode, Intege
     void deleteOldCaptchas(@Param("query") int time);
 
     /**
-     * Метод findSecretByCode
-     * Возвращает секретный код по коду
+     * Метод deleteCaptcha
+     * Удаляет капчу с указанными кодом и секретным кодом
      *
-     * @param code
+     * @return количество удалённых капч: 0, если капчи нет или она уже
+     * использована
      */
-    @Query(value = "select secret_code from captcha_codes where code = " +
-            ":query", nativeQuery = true)
-    String findSecretByCode(@Param("query") String code);
+    @Modifying
+    @Transactional
+    @Query(value = "delete from captcha_codes where code = :code and " +
+            "secret_code = :secret", nativeQuery = true)
+    int deleteCaptcha(@Param("code") String code,
+                      @Param("secret") String secret);
 }
@@ -1,15 +1,21 @@
 package main.repository;
 
 import main.model.Post;
-import org.springframework.data.domain.Page;
+import main.model.helper.PostPreviewView;
+import main.model.helper.PostStatsView;
+import main.model.helper.PostTimeView;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Интерфейс PostRepository. Слой для работы с БД и сущностью Post
@@ -19,70 +25,114 @@ import java.util.List;
  */
 @Repository
 public interface PostRepository extends JpaRepository<Post, Integer> {
+    /**
+     * Общая часть запросов ленты: данные поста, имя автора и счётчики
+     * одной строкой на пост. Полный текст поста не выбирается, в ленте
+     * выводится только сохранённый анонс
+     *
+     * @see PostPreviewView
+     */
+    String PREVIEW = "select posts.id as id, posts.time as time, " +
+            "posts.user_id as userId, users.name as userName, " +
+            "posts.title as title, posts.announce as announce, " +
+            "posts.likes_count as likeCount, " +
+            "posts.dislikes_count as dislikeCount, " +
+            "posts.comments_count as commentCount, " +
+            "posts.view_count as viewCount " +
+            "from posts join users on users.id = posts.user_id ";
+
+    /**
+     * Общая часть запросов статистики: автор, время и счётчики поста
+     *
+     * @see PostStatsView
+     */
+    String STATS = "select id as id, user_id as userId, time as time, " +
+            "likes_count as likeCount, dislikes_count as dislikeCount, " +
+            "view_count as viewCount from posts ";
+
+    /**
+     * Пересчёт счётчиков поста по таблицам post_votes и post_comments
+     *
+     * @see #reconcileCounters(int, int)
+     */
+    String LIKES = "(select count(*) from post_votes where " +
+            "post_votes.post_id = posts.id and post_votes.value = 1)";
+    String DISLIKES = "(select count(*) from post_votes where " +
+            "post_votes.post_id = posts.id and post_votes.value = -1)";
+    String COMMENTS = "(select count(*) from post_comments where " +
+            "post_comments.post_id = posts.id)";
+
     /**
      * Метод findPostsSortedByLikesCount
      * Метод получения постов со всей сопутствующей информацией, отсортирован-
      * ных по количеству лайков
      *
+     * @param score количество лайков последнего выведенного поста
+     * @param id последнего выведенного поста
      * @param pageable параметры вывода на страницу
      */
-    @Query(value = "SELECT posts.id, " +
-            "posts.is_active, posts.moderation_status, posts.moderator_id, " +
-            "posts.text, posts.time, posts.title, posts.view_count, " +
-            "posts.user_id FROM posts left join (SELECT post_id, " +
-            "count(value) as likes from post_votes where value = 1 " +
-            "group by post_id order by count(value) desc) as likes " +
-            "on posts.id = likes.post_id where posts.is_active = 1 " +
-            "and posts.moderation_status = 'ACCEPTED' " +
-            "and posts.time < current_time() order by likes desc",
-            countQuery = "SELECT count(*) Posts",
+    @Query(value = PREVIEW + "where posts.is_active = 1 and " +
+            "posts.moderation_status = 'ACCEPTED' and posts.time < " +
+            "current_time() and (posts.likes_count < :score or " +
+            "(posts.likes_count = :score and posts.id < :id)) " +
+            "order by posts.likes_count desc, posts.id desc",
             nativeQuery = true)
-    Page<Post> findPostsSortedByLikesCount(Pageable pageable);
+    List<PostPreviewView> findPostsSortedByLikesCount(
+            @Param("score") int score, @Param("id") int id, Pageable pageable);
 
     /**
      * Метод findPostsSortedByCommentsCount
      * Метод получения постов со всей сопутствующей информацией, отсортирован-
      * ных по количеству комментариев
      *
+     * @param score количество комментариев последнего выведенного поста
+     * @param id последнего выведенного поста
      * @param pageable параметры вывода на страницу
      */
-    @Query(value = "SELECT posts.id, posts.is_active, posts.moderation_status, " +
-            "posts.moderator_id, posts.text, posts.time, posts.title, " +
-            "posts.view_count, posts.user_id FROM posts left join " +
-            "(SELECT post_id, count(id) as comments from post_comments " +
-            "group by post_id order by count(id) desc) as comments " +
-            "on posts.id = comments.post_id where posts.is_active = 1 " +
-            "and posts.moderation_status = 'ACCEPTED' and posts.time < " +
-            "current_time() order by comments desc",
-            countQuery = "SELECT count(*) Posts",
+    @Query(value = PREVIEW + "where posts.is_active = 1 and " +
+            "posts.moderation_status = 'ACCEPTED' and posts.time < " +
+            "current_time() and (posts.comments_count < :score or " +
+            "(posts.comments_count = :score and posts.id < :id)) " +
+            "order by posts.comments_count desc, posts.id desc",
             nativeQuery = true)
-    Page<Post> findPostsSortedByCommentsCount(Pageable pageable);
+    List<PostPreviewView> findPostsSortedByCommentsCount(
+            @Param("score") int score, @Param("id") int id, Pageable pageable);
 
     /**
      * Метод findEarlyPosts
      * Метод получения постов со всей сопутствующей информацией, отсортирован-
      * ных по времени создания от ранних к поздним
      *
+     * @param time время последнего выведенного поста
+     * @param id последнего выведенного поста
      * @param pageable параметры вывода на страницу
      */
-    @Query(value = "SELECT * FROM posts where is_active = 1 and " +
-            "moderation_status = 'ACCEPTED' and time < current_time() " +
-            "order by time",
+    @Query(value = PREVIEW + "where posts.is_active = 1 and " +
+            "posts.moderation_status = 'ACCEPTED' and posts.time < " +
+            "current_time() and (posts.time > :time or " +
+            "(posts.time = :time and posts.id > :id)) " +
+            "order by posts.time, posts.id",
             nativeQuery = true)
-    Page<Post> findEarlyPosts(Pageable pageable);
+    List<PostPreviewView> findEarlyPosts(
+            @Param("time") Date time, @Param("id") int id, Pageable pageable);
 
     /**
      * Метод findRecentPosts
      * Метод получения постов со всей сопутствующей информацией, отсортирован-
      * ных по времени создания от поздних к ранним
      *
+     * @param time время последнего выведенного поста
+     * @param id последнего выведенного поста
      * @param pageable параметры вывода на страницу
      */
-    @Query(value = "SELECT * FROM posts where is_active = 1 and " +
-            "moderation_status = 'ACCEPTED' and time < current_time() " +
-            "order by time desc",
+    @Query(value = PREVIEW + "where posts.is_active = 1 and " +
+            "posts.moderation_status = 'ACCEPTED' and posts.time < " +
+            "current_time() and (posts.time < :time or " +
+            "(posts.time = :time and posts.id < :id)) " +
+            "order by posts.time desc, posts.id desc",
             nativeQuery = true)
-    Page<Post> findRecentPosts(Pageable pageable);
+    List<PostPreviewView> findRecentPosts(
+            @Param("time") Date time, @Param("id") int id, Pageable pageable);
 
     /**
      * Метод findCountOfPosts
@@ -95,31 +145,38 @@ public interface PostRepository extends JpaRepository<Post, Integer> {
     int findCountOfPosts();
 
     /**
-     * Метод searchForPostsByQuery
-     * Метод возвращает посты, соответствующие поисковому запросу
+     * Метод findPreviewsByIds
+     * Метод возвращает превью постов с указанными id в произвольном порядке,
+     * порядок вывода задаёт вызывающий код (например, поисковый индекс)
      *
-     * @param query поисковый запрос
-     * @param pageable параметры вывода на страницу
+     * @param ids id постов, не пустой список
      */
-    @Query(value = "SELECT * FROM posts where posts.is_active = 1 and " +
-            "posts.moderation_status = 'ACCEPTED' and posts.time < " +
-            "current_time() and (posts.text like concat('%',:query,'%') " +
-            "or posts.title like concat('%',:query,'%'))",
-            nativeQuery = true)
-    List<Post> searchForPostsByQuery
-        (@Param("query") String query, Pageable pageable);
+    @Query(value = PREVIEW + "where posts.id in (:ids)", nativeQuery = true)
+    List<PostPreviewView> findPreviewsByIds(
+            @Param("ids") Collection<Integer> ids);
 
     /**
-     * Метод getCountOfPostsByQuery
-     * Метод получения количества постов, соответствующих поисковому запросу
+     * Метод findPublishedPosts
+     * Метод постранично возвращает посты, доступные для чтения, в порядке id.
+     * Используется для построения индексов в памяти при старте приложения
      *
-     * @param query поисковый запрос
+     * @param pageable параметры вывода на страницу
      */
-    @Query(value = "select count(*) from posts where posts.is_active = 1 and " +
-            "posts.moderation_status = 'ACCEPTED' and posts.time < " +
-            "current_time() and (posts.text like concat('%',:query,'%') or " +
-            "posts.title like concat('%',:query,'%'))", nativeQuery = true)
-    int getCountOfPostsByQuery(@Param("query") String query);
+    @Query(value = "select * from posts where is_active = 1 and " +
+            "moderation_status = 'ACCEPTED' and time < current_time() " +
+            "order by id", nativeQuery = true)
+    List<Post> findPublishedPosts(Pageable pageable);
+
+    /**
+     * Метод findPostsPublishedBetween
+     * Метод возвращает принятые активные посты, время публикации которых
+     * наступило в промежутке (from, to]
+     */
+    @Query(value = "select * from posts where is_active = 1 and " +
+            "moderation_status = 'ACCEPTED' and time > :from and time <= :to",
+            nativeQuery = true)
+    List<Post> findPostsPublishedBetween(@Param("from") Date from,
+                                         @Param("to") Date to);
 
     /**
      * Метод getPostsByDate
@@ -129,15 +186,21 @@ public interface PostRepository extends JpaRepository<Post, Integer> {
      *                  минуты, секунды и миллисекунды: 00:00:00.000000
      * @param dateAfter к дате в формате "2019-10-16" добавлены часы,
      *                  минуты, секунды и миллисекунды: 00:00:00.000000
+     * @param time время последнего выведенного поста
+     * @param id последнего выведенного поста
      * @param pageable параметры вывода на страницу
      */
-    @Query(value = "select * from posts where is_active = 1 and " +
-            "moderation_status = 'ACCEPTED' and time > :dateBefore " +
-            " and time < :dateAfter and time < current_time()",
+    @Query(value = PREVIEW + "where posts.is_active = 1 and " +
+            "posts.moderation_status = 'ACCEPTED' and posts.time < " +
+            "current_time() and posts.time > :dateBefore and " +
+            "posts.time < :dateAfter and (posts.time < :time or " +
+            "(posts.time = :time and posts.id < :id)) " +
+            "order by posts.time desc, posts.id desc",
             nativeQuery = true)
-    List<Post> getPostsByDate(@Param("dateBefore") String dateBefore,
-                              @Param("dateAfter") String dateAfter,
-                              Pageable pageable);
+    List<PostPreviewView> getPostsByDate(
+            @Param("dateBefore") String dateBefore,
+            @Param("dateAfter") String dateAfter, @Param("time") Date time,
+            @Param("id") int id, Pageable pageable);
     /**
      * Метод getCountOfPostsByDate
      * Выводит количество постов за указанную дату, переданную в запросе
@@ -158,18 +221,21 @@ public interface PostRepository extends JpaRepository<Post, Integer> {
      * Метод выводит список постов, привязанных к тэгу, который был передан
      *
      * @param tag тэг, по которому нужно вывести все посты
+     * @param time время последнего выведенного поста
+     * @param id последнего выведенного поста
      * @param pageable параметры вывода на страницу
      */
-    @Query(value = "select posts.id, posts.is_active, posts.moderation_status, " +
-            "posts.moderator_id, posts.text, posts.time, posts.title, " +
-            "posts.view_count, posts.user_id from posts join (select " +
-            "tag2post.tag_id, tag2post.post_id, tags.name as tag_name from " +
-            "tag2post join tags on tag2post.tag_id = tags.id) as temp on " +
-            "posts.id = temp.post_id where posts.is_active = 1 and " +
+    @Query(value = PREVIEW + "join tag2post on tag2post.post_id = " +
+            "posts.id join tags on tags.id = tag2post.tag_id where " +
+            "tags.name = :query and posts.is_active = 1 and " +
             "posts.moderation_status = 'ACCEPTED' and posts.time < " +
-            "current_time() and temp.tag_name = :query",
+            "current_time() and (posts.time < :time or " +
+            "(posts.time = :time and posts.id < :id)) " +
+            "order by posts.time desc, posts.id desc",
             nativeQuery = true)
-    List<Post> getPostsByTag(@Param("query") String tag, Pageable pageable);
+    List<PostPreviewView> getPostsByTag(
+            @Param("query") String tag, @Param("time") Date time,
+            @Param("id") int id, Pageable pageable);
 
     /**
      * Метод getCountOfPostsByTag
@@ -189,16 +255,26 @@ public interface PostRepository extends JpaRepository<Post, Integer> {
     int getCountOfPostsByTag(@Param("query") String tag);
 
     /**
-     * Метод getNewPosts
-     * Метод выводит все посты со статусом "NEW"
+     * Метод getPostsForModeration
+     * Метод выводит посты с указанным статусом модерации, доступные
+     * модератору
      *
-     * @param id
+     * @param status статус модерации: NEW, DECLINED или ACCEPTED
+     * @param moderatorId
+     * @param time время последнего выведенного поста
+     * @param id последнего выведенного поста
      * @param pageable параметры вывода на страницу
      */
-    @Query(value = "select * from posts where is_active = 1 and " +
-            "posts.moderation_status = 'NEW' and (moderator_id = :query or " +
-            "moderator_id = 0)", nativeQuery = true)
-    List<Post> getNewPosts(@Param("query") int id, Pageable pageable);
+    @Query(value = PREVIEW + "where posts.is_active = 1 and " +
+            "posts.moderation_status = :status and (posts.moderator_id = " +
+            ":moderator or posts.moderator_id = 0) and (posts.time < :time " +
+            "or (posts.time = :time and posts.id < :id)) " +
+            "order by posts.time desc, posts.id desc",
+            nativeQuery = true)
+    List<PostPreviewView> getPostsForModeration(
+            @Param("status") String status,
+            @Param("moderator") int moderatorId, @Param("time") Date time,
+            @Param("id") int id, Pageable pageable);
 
     /**
      * Метод getCountOfNewPosts
@@ -211,18 +287,6 @@ public interface PostRepository extends JpaRepository<Post, Integer> {
             "moderator_id = 0)", nativeQuery = true)
     int getCountOfNewPosts(@Param("query") int id);
 
-    /**
-     * Метод getDeclinedPosts
-     * Метод выводит все посты со статусом "DECLINED"
-     *
-     * @param id
-     * @param pageable параметры вывода на страницу
-     */
-    @Query(value = "select * from posts where is_active = 1 and " +
-            "posts.moderation_status = 'DECLINED' and (moderator_id = :query " +
-            "or moderator_id = 0)", nativeQuery = true)
-    List<Post> getDeclinedPosts(@Param("query") int id, Pageable pageable);
-
     /**
      * Метод getCountOfDeclinedPosts
      * Метод выводит количество постов со статусом "DECLINED" для постраничного
@@ -235,18 +299,6 @@ public interface PostRepository extends JpaRepository<Post, Integer> {
             "or moderator_id = 0)", nativeQuery = true)
     int getCountOfDeclinedPosts(@Param("query") int id);
 
-    /**
-     * Метод getAcceptedPosts
-     * Метод выводит все посты со статусом "ACCEPTED"
-     *
-     * @param id
-     * @param pageable параметры вывода на страницу
-     */
-    @Query(value = "select * from posts where is_active = 1 and " +
-            "posts.moderation_status = 'ACCEPTED' and (moderator_id = :query " +
-            "or moderator_id = 0)", nativeQuery = true)
-    List<Post> getAcceptedPosts(@Param("query") int id, Pageable pageable);
-
     /**
      * Метод getCountOfAcceptedPosts
      * Метод выводит количество постов со статусом "ACCEPTED" для постраничного
@@ -263,12 +315,19 @@ public interface PostRepository extends JpaRepository<Post, Integer> {
      * Метод getMyInactivePosts
      * Метод выводит только те неактивные посты, которые создал я
      *
-     * @param id
+     * @param userId
+     * @param time время последнего выведенного поста
+     * @param id последнего выведенного поста
      * @param pageable параметры вывода на страницу
      */
-    @Query(value = "select * from posts where is_active = 0 and user_id = :query",
+    @Query(value = PREVIEW + "where posts.is_active = 0 and " +
+            "posts.user_id = :user and (posts.time < :time or " +
+            "(posts.time = :time and posts.id < :id)) " +
+            "order by posts.time desc, posts.id desc",
             nativeQuery = true)
-    List<Post> getMyInactivePosts(@Param("query") int id, Pageable pageable);
+    List<PostPreviewView> getMyInactivePosts(
+            @Param("user") int userId, @Param("time") Date time,
+            @Param("id") int id, Pageable pageable);
 
     /**
      * Метод getCountOfMyInactivePosts
@@ -281,16 +340,24 @@ public interface PostRepository extends JpaRepository<Post, Integer> {
     int getCountOfMyInactivePosts(@Param("query") int id);
 
     /**
-     * Метод getMyPendingPosts
-     * Метод выводит только те активные, ожидающие утверждения модератором
-     * посты, которые создал я
+     * Метод getMyActivePosts
+     * Метод выводит только те активные посты с указанным статусом модерации,
+     * которые создал я
      *
-     * @param id
+     * @param userId
+     * @param status статус модерации: NEW, DECLINED или ACCEPTED
+     * @param time время последнего выведенного поста
+     * @param id последнего выведенного поста
      * @param pageable параметры вывода на страницу
      */
-    @Query(value = "select * from posts where is_active = 1 and " +
-            "moderation_status = 'NEW' and user_id = :query", nativeQuery = true)
-    List<Post> getMyPendingPosts(@Param("query") int id, Pageable pageable);
+    @Query(value = PREVIEW + "where posts.is_active = 1 and " +
+            "posts.moderation_status = :status and posts.user_id = :user " +
+            "and (posts.time < :time or (posts.time = :time and " +
+            "posts.id < :id)) order by posts.time desc, posts.id desc",
+            nativeQuery = true)
+    List<PostPreviewView> getMyActivePosts(
+            @Param("user") int userId, @Param("status") String status,
+            @Param("time") Date time, @Param("id") int id, Pageable pageable);
 
     /**
      * Метод getCountOfMyPendingPosts
@@ -303,19 +370,6 @@ public interface PostRepository extends JpaRepository<Post, Integer> {
             "moderation_status = 'NEW' and user_id = :query", nativeQuery = true)
     int getCountOfMyPendingPosts(@Param("query") int id);
 
-    /**
-     * Метод getMyDeclinedPosts
-     * Метод выводит только те активные, отклонённые модератором
-     * посты, которые создал я
-     *
-     * @param id
-     * @param pageable параметры вывода на страницу
-     */
-    @Query(value = "select * from posts where is_active = 1 and " +
-            "moderation_status = 'DECLINED' and user_id = :query",
-            nativeQuery = true)
-    List<Post> getMyDeclinedPosts(@Param("query") int id, Pageable pageable);
-
     /**
      * Метод getCountOfMyDeclinedPosts
      * Метод выводит количество активных, отклонённых модератором постов,
@@ -328,19 +382,6 @@ public interface PostRepository extends JpaRepository<Post, Integer> {
             nativeQuery = true)
     int getCountOfMyDeclinedPosts(@Param("query") int id);
 
-    /**
-     * Метод getMyPublishedPosts
-     * Метод выводит только те активные, опубликованные по итогам модерации
-     * посты, которые создал я
-     *
-     * @param id
-     * @param pageable параметры вывода на страницу
-     */
-    @Query(value = "select * from posts where is_active = 1 and " +
-            "moderation_status = 'ACCEPTED' and user_id = :query",
-            nativeQuery = true)
-    List<Post> getMyPublishedPosts(@Param("query") int id, Pageable pageable);
-
     /**
      * Метод getCountOfMyPublishedPosts
      * Метод выводит количество активных, опубликованных по итогам модерации
@@ -386,117 +427,117 @@ public interface PostRepository extends JpaRepository<Post, Integer> {
     int getCountOfPostsForModeration(@Param("query") int moderatorId);
 
     /**
-     * Метод getPostsCountOfUser
-     * Метод выводит количество постов, у которых user
-     * является автором, доступных для чтения
-     *
-     * @param userId
+     * Метод findPublishedPostStats
+     * Метод возвращает автора, время и счётчики постов, доступных для чтения
      */
-    @Query(value = "select count(*) from posts where user_id = :query and " +
-            "is_active = 1 and moderation_status = 'ACCEPTED' and time " +
-            "< current_time()", nativeQuery = true)
-    int getPostsCountOfUser(@Param("query") int userId);
+    @Query(value = STATS + "where is_active = 1 and moderation_status = " +
+            "'ACCEPTED' and time < current_time()", nativeQuery = true)
+    List<PostStatsView> findPublishedPostStats();
 
     /**
-     * Метод getLikesCountOfUsersPosts
-     * Метод выводит количество лайков постов для всех публикаций, у которых user
-     * является автором, доступных для чтения
+     * Метод findPostStats
+     * Метод возвращает автора, время и счётчики поста
      *
-     * @param userId
+     * @param id поста
      */
-    @Query(value = "select count(*) from posts join (select value, post_id " +
-            "from post_votes) as temp_votes on posts.id = temp_votes.post_id " +
-            "where user_id = :query and is_active = 1 and moderation_status " +
-            "= 'ACCEPTED' and time < current_time() and value = 1",
-            nativeQuery = true)
-    int getLikesCountOfUsersPosts(@Param("query") int userId);
+    @Query(value = STATS + "where id = :id", nativeQuery = true)
+    PostStatsView findPostStats(@Param("id") int id);
 
     /**
-     * Метод getDisLikesCountOfUsersPosts
-     * Метод выводит количество дизлайков постов для всех публикаций, у которых
-     * user является автором, доступных для чтения
-     *
-     * @param userId
+     * Метод findPublishedPostTimes
+     * Метод возвращает id и время публикации постов, доступных для чтения
      */
-    @Query(value = "select count(*) from posts join (select value, post_id " +
-            "from post_votes) as temp_votes on posts.id = temp_votes.post_id " +
-            "where user_id = :query and is_active = 1 and moderation_status " +
-            "= 'ACCEPTED' and time < current_time() and value = -1",
-            nativeQuery = true)
-    int getDisLikesCountOfUsersPosts(@Param("query") int userId);
+    @Query(value = "select id as id, time as time from posts where " +
+            "is_active = 1 and moderation_status = 'ACCEPTED' and " +
+            "time < current_time()", nativeQuery = true)
+    List<PostTimeView> findPublishedPostTimes();
 
     /**
-     * Метод getViewsCountOfUsersPosts
-     * Метод выводит количество просмотров постов для всех публикаций, у которых
-     * user является автором, доступных для чтения
+     * Метод updateVoteCounters
+     * Атомарно изменяет счётчики лайков и дизлайков поста
      *
-     * @param userId
-     */
-    @Query(value = "select sum(view_count) from posts where user_id = :query " +
-            "and is_active = 1 and moderation_status = 'ACCEPTED' and time < " +
-            "current_time()", nativeQuery = true)
-    int getViewsCountOfUsersPosts(@Param("query") int userId);
+     * @param id поста
+     * @param likes изменение количества лайков
+     * @param dislikes изменение количества дизлайков
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "update posts set likes_count = likes_count + :likes, " +
+            "dislikes_count = dislikes_count + :dislikes where id = :id",
+            nativeQuery = true)
+    void updateVoteCounters(@Param("id") int id,
+                            @Param("likes") int likes,
+                            @Param("dislikes") int dislikes);
 
     /**
-     * Метод getFirstPostOfUser
-     * Метод выводит дату первого поста, у которого user является автором,
-     * доступного для чтения
+     * Метод updateCommentsCounter
+     * Атомарно изменяет счётчик комментариев поста
      *
-     * @param userId
+     * @param id поста
+     * @param comments изменение количества комментариев
      */
-    @Query(value = "select min(time) from posts where user_id = :query and " +
-            "is_active = 1 and moderation_status = 'ACCEPTED' and time < " +
-            "current_time()",nativeQuery = true)
-    Date getFirstPostOfUser(@Param("query") int userId);
+    @Modifying
+    @Transactional
+    @Query(value = "update posts set comments_count = comments_count + " +
+            ":comments where id = :id", nativeQuery = true)
+    void updateCommentsCounter(@Param("id") int id,
+                               @Param("comments") int comments);
 
     /**
-     * Метод getPostsCount
-     * Метод выводит количество постов, доступных для чтения
-     */
-    @Query(value = "select count(*) from posts where is_active = 1 and " +
-            "moderation_status = 'ACCEPTED' and time < current_time()",
+     * Метод reconcileCounters
+     * Пересчитывает счётчики лайков, дизлайков и комментариев постов с id
+     * из диапазона [from, to) по таблицам post_votes и post_comments.
+     * Записываются только посты, счётчики которых разошлись
+     *
+     * @return количество исправленных постов
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "update posts set likes_count = " + LIKES + ", " +
+            "dislikes_count = " + DISLIKES + ", " +
+            "comments_count = " + COMMENTS + " " +
+            "where id >= :from and id < :to and (" +
+            "likes_count <> " + LIKES + " or " +
+            "dislikes_count <> " + DISLIKES + " or " +
+            "comments_count <> " + COMMENTS + ")",
             nativeQuery = true)
-    int getPostsCount();
+    int reconcileCounters(@Param("from") int from, @Param("to") int to);
 
     /**
-     * Метод getLikesCount
-     * Метод выводит количество лайков постов, доступных для чтения
+     * Метод findMaxId
+     * Возвращает наибольший id поста или null, если постов нет
      */
-    @Query(value = "select count(*) from posts join (select value, post_id " +
-            "from post_votes) as temp_votes on posts.id = temp_votes.post_id " +
-            "where is_active = 1 and moderation_status = 'ACCEPTED' and time " +
-            "< current_time() and value = 1", nativeQuery = true)
-    int getLikesCount();
+    @Query(value = "select max(id) from posts", nativeQuery = true)
+    Integer findMaxId();
 
     /**
-     * Метод getDisLikesCount
-     * Метод выводит количество дизлайков постов, доступных для чтения
+     * Метод findTop100ByAnnounceIsNull
+     * Возвращает посты, для которых ещё не сохранён анонс
      */
-    @Query(value = "select count(*) from posts join (select value, post_id " +
-            "from post_votes) as temp_votes on posts.id = temp_votes.post_id " +
-            "where is_active = 1 and moderation_status = 'ACCEPTED' and time " +
-            "< current_time() and value = -1", nativeQuery = true)
-    int getDisLikesCount();
+    List<Post> findTop100ByAnnounceIsNull();
 
     /**
-     * Метод getViewsCount
-     * Метод выводит количество просмотров постов, доступных для чтения
+     * Метод updateAnnounce
+     * Сохраняет анонс поста, не затрагивая остальные поля
+     *
+     * @param id поста
+     * @param announce анонс
      */
-    @Query(value = "select sum(view_count) from posts where is_active = 1 " +
-            "and moderation_status = 'ACCEPTED' and time < current_time()",
+    @Modifying
+    @Transactional
+    @Query(value = "update posts set announce = :announce where id = :id",
             nativeQuery = true)
-    int getViewsCount();
+    void updateAnnounce(@Param("id") int id,
+                        @Param("announce") String announce);
 
     /**
-     * Метод getFirstPost
-     * Метод выводит дату первого поста, доступного для чтения
+     * Метод findPostForView
+     * Возвращает пост вместе с автором и тэгами одним запросом, для
+     * страницы поста. Лайки и дизлайки берутся из счётчиков поста
+     *
+     * @param id поста
      */
-    @Query(value = "select min(time) from posts where is_active = 1 and " +
-            "moderation_status = 'ACCEPTED' and time < current_time()",
-            nativeQuery = true)
-    Date getFirstPost();
-
-    @Query(value = "select substr(time, 1, 10) as day from posts where " +
-            "substr(time, 1, 4) like :query", nativeQuery = true)
-    List<String> getPostsForTheYear(@Param("query") String year);
-}
\ No newline at end of file
+    @Query("select distinct p from Post p join fetch p.user " +
+            "left join fetch p.tagSet where p.id = :id")
+    Optional<Post> findPostForView(@Param("id") int id);
+}
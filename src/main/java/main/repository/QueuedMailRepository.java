@@ -0,0 +1,82 @@
+package main.repository;
+
+import main.model.QueuedMail;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Интрефейс QueuedMailRepository. Слой для работы с БД и очередью исходящих
+ * писем
+ *
+ * @version 1.1
+ * @see org.springframework.data.jpa.repository.JpaRepository
+ */
+@Repository
+public interface QueuedMailRepository extends JpaRepository<QueuedMail, Integer> {
+    /**
+     * Метод claimDue
+     * Забирает для отправки пачку писем, время отправки которых наступило:
+     * помечает их меткой claim и откладывает до lease. Обновление строк
+     * атомарно, поэтому одно письмо забирает только один экземпляр
+     * приложения. Если экземпляр не отправил письмо до lease, письмо
+     * снова становится доступным
+     *
+     * @param claim метка отправки
+     * @param now   текущее время
+     * @param lease время, до которого письма закреплены за отправкой
+     * @param limit размер пачки
+     * @return количество забранных писем
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "update mail_queue set claim = :claim, " +
+            "next_attempt = :lease where next_attempt <= :now " +
+            "order by id limit :limit", nativeQuery = true)
+    int claimDue(@Param("claim") String claim, @Param("now") Date now,
+                 @Param("lease") Date lease, @Param("limit") int limit);
+
+    /**
+     * Метод findClaimed
+     * Возвращает письма, забранные отправкой с меткой claim, в порядке
+     * постановки в очередь
+     */
+    @Query(value = "select * from mail_queue where claim = :claim " +
+            "order by id", nativeQuery = true)
+    List<QueuedMail> findClaimed(@Param("claim") String claim);
+
+    /**
+     * Метод deleteSent
+     * Удаляет отправленные письма из очереди
+     *
+     * @param ids id писем, не пустой список
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "delete from mail_queue where id in (:ids)",
+            nativeQuery = true)
+    void deleteSent(@Param("ids") Collection<Integer> ids);
+
+    /**
+     * Метод postpone
+     * Откладывает письмо после неудачной попытки отправки
+     *
+     * @param id          id письма
+     * @param nextAttempt время следующей попытки
+     * @param error       причина неудачи
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "update mail_queue set attempts = attempts + 1, " +
+            "next_attempt = :next, last_error = :error, claim = null " +
+            "where id = :id", nativeQuery = true)
+    void postpone(@Param("id") int id, @Param("next") Date nextAttempt,
+                  @Param("error") String error);
+}
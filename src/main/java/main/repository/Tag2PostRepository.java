@@ -1,6 +1,7 @@
 package main.repository;
 
 import main.model.TagToPost;
+import main.model.helper.TagLinkView;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
@@ -15,9 +16,14 @@ import java.util.List;
  */
 @Repository
 public interface Tag2PostRepository extends JpaRepository<TagToPost, Integer> {
-    @Query(value = "select tag2post.id, post_id, tag_id from tag2post join posts " +
+    /**
+     * Метод findActiveTagLinks
+     * Метод возвращает связи тэгов с постами, доступными для чтения
+     */
+    @Query(value = "select tag2post.post_id as postId, tags.name as name " +
+            "from tag2post join tags on tags.id = tag2post.tag_id join posts " +
             "on tag2post.post_id = posts.id where is_active = 1 and " +
             "moderation_status = 'ACCEPTED' and time < current_time()",
             nativeQuery = true)
-    List<TagToPost> findActiveTagToPosts();
+    List<TagLinkView> findActiveTagLinks();
 }
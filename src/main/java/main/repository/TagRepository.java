@@ -1,40 +1,37 @@
 package main.repository;
 
 import main.model.Tag;
+import main.model.helper.TagIdView;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
  * Интрефейс TagRepository. Слой для работы с БД и сущностью Tag
  *
- * @version 1.0
+ * @version 1.1
  * @see org.springframework.data.jpa.repository.JpaRepository
  */
 
 public interface TagRepository extends JpaRepository<Tag, Integer> {
     /**
-     * Метод findNamesOfTags
-     * Возвращает списик имён тэгов
+     * Метод findTagIds
+     * Возвращает id и имена всех тэгов
      */
-    @Query(value = "SELECT name FROM tags", nativeQuery = true)
-    List<String> findNamesOfTags();
+    @Query(value = "SELECT id, name FROM tags", nativeQuery = true)
+    List<TagIdView> findTagIds();
 
     /**
-     * Метод findTagByName
-     * Возвращает тэг по имени
-     * @param name имя тэга
+     * Метод findTagIdsByNames
+     * Возвращает id и имена тэгов с указанными именами
+     *
+     * @param names имена тэгов, не пустой список
      */
-    @Query(value = "SELECT * FROM tags where name=:query", nativeQuery = true)
-    Tag findTagByName(@Param("query") String name);
-
-    /**
-     * Метод findByName
-     * Возвращает имена тэгов, начинающихся с указанной строки
-     */
-    @Query(value = "select name from tags where name like concat(:query,'%')",
+    @Query(value = "SELECT id, name FROM tags where name in (:names)",
             nativeQuery = true)
-    List<String> findByName(@Param("query") String query);
+    List<TagIdView> findTagIdsByNames(
+            @Param("names") Collection<String> names);
 }
@@ -2,8 +2,6 @@ package main.repository;
 
 import main.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -15,16 +13,6 @@ import org.springframework.stereotype.Repository;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Integer> {
-    /**
-     * Метод isAdmin
-     * Проверяет является ли пользователь админом / модератором
-     *
-     * @param id
-     */
-    @Query(value = "select is_moderator from users where id = :query",
-            nativeQuery = true)
-    int isAdmin(@Param("query") int id);
-
     /**
      * Метод findByName
      * Возвращает экземпляр User по имени
@@ -0,0 +1,102 @@
+package main.service;
+
+/**
+ * Класс AnnounceExtractor
+ * Класс формирует анонс поста: текст без HTML-разметки длиной не более
+ * 200 символов. Разметка, сущности и пробелы обрабатываются за один проход,
+ * просмотр текста прекращается, как только анонс набран
+ *
+ * @version 1.0
+ */
+public final class AnnounceExtractor {
+    public static final int ANNOUNCE_SIZE = 200;
+    private static final int MAX_ENTITY_LENGTH = 10;
+
+    private AnnounceExtractor() {
+    }
+
+    /**
+     * Метод extract
+     * Метод возвращает анонс для текста поста
+     *
+     * @param html текст поста с HTML-разметкой
+     */
+    public static String extract(String html) {
+        if (html == null)
+            return "";
+        StringBuilder announce = new StringBuilder(ANNOUNCE_SIZE + 3);
+        boolean space = false;
+        int i = 0;
+        while (i < html.length()) {
+            char c = html.charAt(i);
+            if (c == '<') {
+                int end = html.indexOf('>', i);
+                if (end < 0)
+                    break;
+                i = end + 1;
+                space = true;
+                continue;
+            }
+            i++;
+            if (c == '&') {
+                int end = findEntityEnd(html, i);
+                char decoded = end < 0 ? 0 : decodeEntity(html, i, end);
+                if (decoded != 0) {
+                    c = decoded;
+                    i = end + 1;
+                }
+            }
+            if (Character.isWhitespace(c) || c == '\u00A0') {
+                space = true;
+                continue;
+            }
+            int needed = (space && announce.length() > 0) ? 2 : 1;
+            if (announce.length() + needed > ANNOUNCE_SIZE)
+                return announce.toString().trim() + "...";
+            if (needed == 2)
+                announce.append(' ');
+            announce.append(c);
+            space = false;
+        }
+        return announce.toString();
+    }
+
+    private static int findEntityEnd(String html, int from) {
+        int limit = Math.min(html.length(), from + MAX_ENTITY_LENGTH);
+        for (int i = from; i < limit; i++)
+            if (html.charAt(i) == ';')
+                return i;
+        return -1;
+    }
+
+    private static char decodeEntity(String html, int from, int to) {
+        String name = html.substring(from, to);
+        switch (name) {
+            case "nbsp":
+                return '\u00A0';
+            case "amp":
+                return '&';
+            case "lt":
+                return '<';
+            case "gt":
+                return '>';
+            case "quot":
+                return '"';
+            case "apos":
+                return '\'';
+            default:
+                if (name.length() < 2 || name.charAt(0) != '#')
+                    return 0;
+                try {
+                    int code = name.charAt(1) == 'x' || name.charAt(1) == 'X'
+                            ? Integer.parseInt(name.substring(2), 16)
+                            : Integer.parseInt(name.substring(1));
+                    return code > 0 && code <= Character.MAX_VALUE
+                            ? (char) code : 0;
+                }
+                catch (NumberFormatException e) {
+                    return 0;
+                }
+        }
+    }
+}
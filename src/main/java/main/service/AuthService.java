@@ -7,7 +7,6 @@ import main.model.request.passwords.RegisterRequest;
 import main.model.response.others.CaptchaResponse;
 import main.model.response.results.ResultResponse;
 
-import java.io.IOException;
 
 public interface AuthService {
     ResultResponse login(LoginRequest authRequest);
@@ -15,6 +14,6 @@ public interface AuthService {
     ResultResponse restore(EmailRequest emailRequest);
     ResultResponse changePassword(ChangePasswordRequest request);
     Object register(RegisterRequest request);
-    CaptchaResponse captcha() throws IOException;
+    CaptchaResponse captcha();
     ResultResponse logout();
 }
@@ -0,0 +1,24 @@
+package main.service;
+
+/**
+ * Интерфейс CaptchaService
+ * Выдача и проверка секретных кодов капчи
+ *
+ * @version 1.1
+ */
+public interface CaptchaService {
+    /**
+     * Метод issue
+     * Метод возвращает секретный код для капчи с ответом code
+     */
+    String issue(String code);
+
+    /**
+     * Метод verify
+     * Метод проверяет, что ответ code соответствует секретному коду secret,
+     * а капча не устарела и ещё не использовалась, и сразу помечает капчу
+     * использованной. Из одновременных проверок одной капчи успешна только
+     * одна
+     */
+    boolean verify(String code, String secret);
+}
@@ -0,0 +1,20 @@
+package main.service;
+
+import java.io.IOException;
+
+/**
+ * Интерфейс ImageStorage
+ * Хранилище загружаемых изображений: картинок постов и аватаров
+ *
+ * @version 1.0
+ */
+public interface ImageStorage {
+    /**
+     * Метод store
+     * Метод сохраняет изображение и возвращает его URL
+     *
+     * @param content содержимое файла
+     * @param extension расширение файла без точки, например "jpg"
+     */
+    String store(byte[] content, String extension) throws IOException;
+}
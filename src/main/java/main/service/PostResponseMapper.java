@@ -1,15 +1,12 @@
 package main.service;
 
 import main.model.*;
+import main.model.helper.PostPreviewView;
 import main.model.response.ids.*;
 import org.mapstruct.Mapper;
 
-import java.util.ArrayList;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Класс PostResponseMapper
@@ -33,23 +30,24 @@ public class PostResponseMapper {
      *      - посты, которые создал я (в соответствии с полем user_id в таблице
      *      posts базы данных)
      *
-     * @param post пост, который нужно преобразовать, к виду PostResponse
+     * @param post строка ленты, полученная запросом-проекцией
+     * @see main.repository.PostRepository#PREVIEW
      */
-    public PostPreview postToPostPreview(Post post) {
+    public PostPreview postToPostPreview(PostPreviewView post) {
         PostPreview response = new PostPreview();
         response.setId(post.getId());
         response.setTimestamp(post.getTime().getTime()/1000);
 
         IdNameResp user = new IdNameResp();
-        user.setId(post.getUser().getId());
-        user.setName(post.getUser().getName());
+        user.setId(post.getUserId());
+        user.setName(post.getUserName());
         response.setUser(user);
 
         response.setTitle(post.getTitle());
-        response.setAnnounce(getAnnounceDTO(post));
-        response.setLikeCount(getLikes(post));
-        response.setDislikeCount(getDislikes(post));
-        response.setCommentCount(post.getPostCommentList().size());
+        response.setAnnounce(post.getAnnounce());
+        response.setLikeCount(post.getLikeCount());
+        response.setDislikeCount(post.getDislikeCount());
+        response.setCommentCount(post.getCommentCount());
         response.setViewCount(post.getViewCount());
         return response;
     }
@@ -57,8 +55,10 @@ public class PostResponseMapper {
     /**
      * Метод postToPostResponse
      * Метод готовит объекты для вывода конкретного поста для отображения на
-     * странице поста, в том числе, список комментариев и тэгов, привязанных
-     * к данному посту
+     * странице поста, в том числе, список тэгов, привязанных к данному посту.
+     * Комментарии выводятся отдельно, страницами
+     *
+     * @see main.service.impl.PostComments
      *
      * @param post пост, который нужно преобразовать
      */
@@ -75,10 +75,9 @@ public class PostResponseMapper {
 
         response.setTitle(post.getTitle());
         response.setText(post.getText());
-        response.setLikeCount(getLikes(post));
-        response.setDislikeCount(getDislikes(post));
+        response.setLikeCount(post.getLikesCount());
+        response.setDislikeCount(post.getDislikesCount());
         response.setViewCount(post.getViewCount());
-        response.setComments(getCommentsResponse(post.getPostCommentList()));
 
         Set<Tag> tagSet = post.getTagSet();
         if (tagSet.size() != 0) {
@@ -92,64 +91,24 @@ public class PostResponseMapper {
         return response;
     }
 
-    private String getAnnounceDTO(Post post) {
-        Pattern pattern = Pattern.compile("</?[a-z]+>");
-        Matcher matcher = pattern.matcher(post.getText());
-        String answer = matcher.replaceAll("...");
-
-        pattern = Pattern.compile("&nbsp;");
-        matcher = pattern.matcher(answer);
-        answer = matcher.replaceAll("...");
-
-        pattern = Pattern.compile("<[a-z]+ .+\">");
-        matcher = pattern.matcher(answer);
-        answer = matcher.replaceAll("...");
-
-        int sizeOfAnnounce = 200;
-        if (answer.length() < sizeOfAnnounce)
-            return answer;
-        else {
-            answer = answer.substring(0, sizeOfAnnounce);
-            return answer.trim() + "...";
-        }
-    }
-
-    private int getLikes(Post post) {
-        int likesCount = 0;
-        for (PostVote postVote : post.getPostVoteList())
-            if (postVote.getValue() == 1)
-                likesCount++;
-        return likesCount;
-    }
-
-    private int getDislikes(Post post) {
-        int disLikesCount = 0;
-        for (PostVote postVote : post.getPostVoteList())
-            if (postVote.getValue() == -1)
-                disLikesCount++;
-        return disLikesCount;
-    }
-
-    private List<CommentResponse> getCommentsResponse
-            (List<PostComment> comments) {
-        List<CommentResponse> response = new ArrayList<>();
-        for (PostComment comment : comments) {
-                CommentResponse commentResponse = new CommentResponse();
-                commentResponse.setId(comment.getId());
-                commentResponse.setTimestamp(comment.getTime().getTime()/1000);
-                commentResponse.setText(comment.getText());
-
-                IdNamePhotoResp userWithPhoto =
-                        new IdNamePhotoResp();
-                userWithPhoto.setId(comment.getUser().getId());
-                userWithPhoto.setName(comment.getUser().getName());
-                userWithPhoto.setPhoto(comment.getUser().getPhoto());
-
-                commentResponse.setUser(userWithPhoto);
-                if (comment.getParentId() != null)
-                    commentResponse.setParentId(comment.getParentId());
-                response.add(commentResponse);
-        }
+    /**
+     * Метод copy
+     * Метод возвращает копию ответа, чтобы менять её, не затрагивая ответ
+     * из кэша. Вложенные объекты и списки общие
+     */
+    public PostResponse copy(PostResponse post) {
+        PostResponse response = new PostResponse();
+        response.setId(post.getId());
+        response.setTimestamp(post.getTimestamp());
+        response.setActive(post.isActive());
+        response.setUser(post.getUser());
+        response.setTitle(post.getTitle());
+        response.setText(post.getText());
+        response.setLikeCount(post.getLikeCount());
+        response.setDislikeCount(post.getDislikeCount());
+        response.setViewCount(post.getViewCount());
+        response.setComments(post.getComments());
+        response.setTags(post.getTags());
         return response;
     }
 }
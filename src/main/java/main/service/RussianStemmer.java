@@ -0,0 +1,143 @@
+package main.service;
+
+/**
+ * Класс RussianStemmer
+ * Стеммер русского языка по алгоритму Snowball (Портера): отсекает
+ * окончания и суффиксы, чтобы разные формы слова давали одну основу
+ *
+ * @version 1.0
+ * @see <a href="https://snowballstem.org/algorithms/russian/stemmer.html">
+ *     Russian stemming algorithm</a>
+ */
+public final class RussianStemmer {
+    private static final String VOWELS = "аеиоуыэюя";
+
+    private static final String[] PERFECTIVE_GERUND_1 = {"в", "вши", "вшись"};
+    private static final String[] PERFECTIVE_GERUND_2 = {"ив", "ивши",
+            "ившись", "ыв", "ывши", "ывшись"};
+    private static final String[] ADJECTIVE = {"ее", "ие", "ые", "ое", "ими",
+            "ыми", "ей", "ий", "ый", "ой", "ем", "им", "ым", "ом", "его", "ого",
+            "ему", "ому", "их", "ых", "ую", "юю", "ая", "яя", "ою", "ею"};
+    private static final String[] PARTICIPLE_1 = {"ем", "нн", "вш", "ющ", "щ"};
+    private static final String[] PARTICIPLE_2 = {"ивш", "ывш", "ующ"};
+    private static final String[] REFLEXIVE = {"ся", "сь"};
+    private static final String[] VERB_1 = {"ла", "на", "ете", "йте", "ли",
+            "й", "л", "ем", "н", "ло", "но", "ет", "ют", "ны", "ть", "ешь",
+            "нно"};
+    private static final String[] VERB_2 = {"ила", "ыла", "ена", "ейте",
+            "уйте", "ите", "или", "ыли", "ей", "уй", "ил", "ыл", "им", "ым",
+            "ен", "ило", "ыло", "ено", "ят", "ует", "уют", "ит", "ыт", "ены",
+            "ить", "ыть", "ишь", "ую", "ю"};
+    private static final String[] NOUN = {"а", "ев", "ов", "ие", "ье", "е",
+            "иями", "ями", "ами", "еи", "ии", "и", "ией", "ей", "ой", "ий", "й",
+            "иям", "ям", "ием", "ем", "ам", "ом", "о", "у", "ах", "иях", "ях",
+            "ы", "ь", "ию", "ью", "ю", "ия", "ья", "я"};
+    private static final String[] DERIVATIONAL = {"ост", "ость"};
+    private static final String[] SUPERLATIVE = {"ейш", "ейше"};
+    private static final String[] NONE = {};
+
+    private RussianStemmer() {
+    }
+
+    /**
+     * Метод stem
+     * Метод возвращает основу слова
+     *
+     * @param word слово в нижнем регистре, "ё" заменена на "е"
+     */
+    public static String stem(String word) {
+        int rvStart = word.length();
+        for (int i = 0; i < word.length(); i++)
+            if (isVowel(word.charAt(i))) {
+                rvStart = i + 1;
+                break;
+            }
+        if (rvStart >= word.length())
+            return word;
+        int r2 = Math.max(nextRegion(word, nextRegion(word, 0)) - rvStart, 0);
+        StringBuilder rv = new StringBuilder(word.substring(rvStart));
+
+        // шаг 1: деепричастие, иначе возвратная частица и затем
+        // прилагательное (с причастием), глагол или существительное
+        if (!remove(rv, PERFECTIVE_GERUND_1, PERFECTIVE_GERUND_2)) {
+            remove(rv, NONE, REFLEXIVE);
+            if (remove(rv, NONE, ADJECTIVE))
+                remove(rv, PARTICIPLE_1, PARTICIPLE_2);
+            else if (!remove(rv, VERB_1, VERB_2))
+                remove(rv, NONE, NOUN);
+        }
+        // шаг 2
+        if (endsWith(rv, "и"))
+            rv.setLength(rv.length() - 1);
+        // шаг 3: словообразовательный суффикс в области R2
+        String derivational = longest(rv, DERIVATIONAL);
+        if (derivational != null && rv.length() - derivational.length() >= r2)
+            rv.setLength(rv.length() - derivational.length());
+        // шаг 4
+        String superlative = longest(rv, SUPERLATIVE);
+        if (superlative != null) {
+            rv.setLength(rv.length() - superlative.length());
+            if (endsWith(rv, "нн"))
+                rv.setLength(rv.length() - 1);
+        }
+        else if (endsWith(rv, "нн") || endsWith(rv, "ь"))
+            rv.setLength(rv.length() - 1);
+
+        return word.substring(0, rvStart) + rv;
+    }
+
+    /**
+     * Метод remove
+     * Метод находит самое длинное окончание из обеих групп и удаляет его.
+     * Окончания первой группы удаляются, только если им предшествует
+     * "а" или "я"
+     *
+     * @return true, если окончание удалено
+     */
+    private static boolean remove(StringBuilder rv, String[] afterAYa,
+                                  String[] any) {
+        String first = longest(rv, afterAYa);
+        String second = longest(rv, any);
+        if (first == null && second == null)
+            return false;
+        if (second == null || (first != null
+                && first.length() > second.length())) {
+            int before = rv.length() - first.length() - 1;
+            if (before < 0 || (rv.charAt(before) != 'а'
+                    && rv.charAt(before) != 'я'))
+                return false;
+            rv.setLength(rv.length() - first.length());
+            return true;
+        }
+        rv.setLength(rv.length() - second.length());
+        return true;
+    }
+
+    private static String longest(StringBuilder rv, String[] endings) {
+        String result = null;
+        for (String ending : endings)
+            if (endsWith(rv, ending)
+                    && (result == null || ending.length() > result.length()))
+                result = ending;
+        return result;
+    }
+
+    private static boolean endsWith(StringBuilder rv, String ending) {
+        int start = rv.length() - ending.length();
+        return start >= 0 && rv.indexOf(ending, start) == start;
+    }
+
+    private static int nextRegion(String word, int from) {
+        int i = from;
+        while (i < word.length() && !isVowel(word.charAt(i)))
+            i++;
+        i++;
+        while (i < word.length() && isVowel(word.charAt(i)))
+            i++;
+        return Math.min(i + 1, word.length());
+    }
+
+    private static boolean isVowel(char c) {
+        return VOWELS.indexOf(c) >= 0;
+    }
+}
@@ -0,0 +1,96 @@
+package main.service;
+
+import java.util.*;
+
+/**
+ * Класс TextAnalyzer
+ * Класс разбивает текст поста или поисковый запрос на термы: пропускает
+ * HTML-разметку и сущности, приводит слова к нижнему регистру, убирает
+ * служебные слова и приводит русские слова к основе
+ *
+ * @version 1.0
+ * @see RussianStemmer
+ */
+public final class TextAnalyzer {
+    private static final int MAX_ENTITY_LENGTH = 10;
+    private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(
+            "а", "без", "бы", "в", "во", "вот", "все", "да", "для", "до",
+            "его", "ее", "если", "же", "за", "и", "из", "или", "к", "как",
+            "ко", "ли", "на", "над", "не", "нет", "ни", "но", "о", "об", "от",
+            "по", "под", "при", "с", "со", "так", "также", "то", "у", "уже",
+            "что", "чтобы", "это", "эта", "этот", "я", "мы", "вы", "он",
+            "она", "оно", "они", "the", "and", "or", "of", "to", "in", "a",
+            "an", "is", "on", "for"));
+
+    private TextAnalyzer() {
+    }
+
+    /**
+     * Метод analyze
+     * Метод возвращает термы текста в порядке их следования
+     *
+     * @param text текст, м.б. с HTML-разметкой
+     */
+    public static List<String> analyze(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null)
+            return terms;
+        StringBuilder word = new StringBuilder();
+        int i = 0;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if (c == '<') {
+                int end = text.indexOf('>', i);
+                i = end < 0 ? text.length() : end + 1;
+                addTerm(terms, word);
+                continue;
+            }
+            if (c == '&') {
+                int end = findEntityEnd(text, i + 1);
+                if (end > 0) {
+                    i = end + 1;
+                    addTerm(terms, word);
+                    continue;
+                }
+            }
+            if (Character.isLetterOrDigit(c))
+                word.append(Character.toLowerCase(c) == 'ё'
+                        ? 'е' : Character.toLowerCase(c));
+            else
+                addTerm(terms, word);
+            i++;
+        }
+        addTerm(terms, word);
+        return terms;
+    }
+
+    private static void addTerm(List<String> terms, StringBuilder word) {
+        if (word.length() == 0)
+            return;
+        String term = word.toString();
+        word.setLength(0);
+        if (STOP_WORDS.contains(term))
+            return;
+        terms.add(isCyrillic(term) ? RussianStemmer.stem(term) : term);
+    }
+
+    private static boolean isCyrillic(String term) {
+        for (int i = 0; i < term.length(); i++)
+            if (Character.UnicodeBlock.of(term.charAt(i))
+                    == Character.UnicodeBlock.CYRILLIC)
+                return true;
+        return false;
+    }
+
+    private static int findEntityEnd(String text, int from) {
+        int limit = Math.min(text.length(), from + MAX_ENTITY_LENGTH);
+        for (int i = from; i < limit; i++) {
+            char c = text.charAt(i);
+            if (c == ';')
+                return i > from ? i : -1;
+            if (!Character.isLetterOrDigit(c) && c != '#')
+                return -1;
+        }
+        return -1;
+    }
+}
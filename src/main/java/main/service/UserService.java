@@ -1,9 +1,14 @@
 package main.service;
 
-import main.model.helper.Account;
+import org.springframework.security.core.userdetails.UserDetailsService;
 
-import java.util.List;
-
-public interface UserService {
-    List<Account> getAccounts();
+public interface UserService extends UserDetailsService {
+    /**
+     * Метод invalidate
+     * Метод удаляет пользователя из кэша после изменения его имени или
+     * пароля
+     *
+     * @param name имя пользователя
+     */
+    void invalidate(String name);
 }
@@ -0,0 +1,46 @@
+package main.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import main.model.Post;
+import main.repository.PostRepository;
+import main.service.AnnounceExtractor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Класс AnnounceBackfill
+ * Заполняет анонсы постов, сохранённых до появления колонки announce.
+ * После первого запуска не находит ни одного поста и завершается одним
+ * запросом
+ *
+ * @version 1.0
+ */
+@Service
+@RequiredArgsConstructor
+public class AnnounceBackfill {
+    private static final Logger log =
+            LoggerFactory.getLogger(AnnounceBackfill.class);
+
+    private final PostRepository postRepository;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void fillMissingAnnounces() {
+        int filled = 0;
+        List<Post> posts = postRepository.findTop100ByAnnounceIsNull();
+        while (!posts.isEmpty()) {
+            for (Post post : posts) {
+                postRepository.updateAnnounce(post.getId(),
+                        AnnounceExtractor.extract(post.getText()));
+                filled++;
+            }
+            posts = postRepository.findTop100ByAnnounceIsNull();
+        }
+        if (filled > 0)
+            log.info("Announces filled for {} posts", filled);
+    }
+}
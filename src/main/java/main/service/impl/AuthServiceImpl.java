@@ -1,14 +1,10 @@
 package main.service.impl;
 
-import com.github.cage.Cage;
-import com.github.cage.GCage;
 import lombok.RequiredArgsConstructor;
 import main.config.AuthConfiguration;
-import main.model.CaptchaCode;
 import main.model.User;
+import main.model.helper.UserPrincipal;
 import main.model.response.results.Error;
-import main.repository.CaptchaCodeRepository;
-import main.repository.GlobalSettingsRepository;
 import main.repository.PostRepository;
 import main.repository.UserRepository;
 import main.model.request.others.EmailRequest;
@@ -22,22 +18,14 @@ import main.model.response.passwords.EmailNameCapResp;
 import main.model.response.results.AuthResUserResp;
 import main.model.response.results.ResultResponse;
 import main.service.AuthService;
-import org.apache.commons.io.FileUtils;
-import org.springframework.beans.factory.annotation.Value;
+import main.service.CaptchaService;
+import main.service.UserService;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
 import org.springframework.web.context.request.RequestContextHolder;
 
-import javax.imageio.ImageIO;
 import javax.servlet.http.HttpServletRequest;
-import java.awt.image.BufferedImage;
-import java.io.File;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.io.OutputStream;
 import java.util.*;
 
 /**
@@ -51,14 +39,15 @@ import java.util.*;
 public class AuthServiceImpl implements AuthService {
     private final UserRepository userRepository;
     private final PostRepository postRepository;
-    private final CaptchaCodeRepository captchaCodeRepository;
-    private final GlobalSettingsRepository globalSettingsRepository;
+    private final BlogSettingsCache blogSettingsCache;
     private final AuthConfiguration authConfiguration;
-    private final JavaMailSender javaMailSender;
+    private final CurrentPrincipal currentPrincipal;
+    private final MailQueue mailQueue;
     private final HttpServletRequest httpServletRequest;
+    private final CaptchaPool captchaPool;
+    private final CaptchaService captchaService;
+    private final UserService userService;
 
-    @Value("${captchaTime}")
-    private int captchaTime;
     /**
      * Метод login
      * Метод проверяет введенные данные и производит авторизацию пользователя
@@ -67,10 +56,12 @@ public class AuthServiceImpl implements AuthService {
     public ResultResponse login(LoginRequest request) {
         User user = userRepository.findByEmail(request.getE_mail());
         if (user.getPassword().equals(request.getPassword())) {
-            AuthResUserResp response = getAuthUserResponse(user);
+            AuthResUserResp response =
+                    getAuthUserResponse(UserPrincipal.of(user));
             String sessionId = RequestContextHolder
                     .currentRequestAttributes().getSessionId();
             authConfiguration.addAuth(sessionId, user.getId());
+            currentPrincipal.reset();
             return response;
         }
         else {
@@ -86,13 +77,9 @@ public class AuthServiceImpl implements AuthService {
      */
     @Override
     public ResultResponse check() {
-        String currentSession = RequestContextHolder
-                .currentRequestAttributes().getSessionId();
-        if (authConfiguration.getAuths().containsKey(currentSession)) {
-            User user = userRepository.findById
-                    (authConfiguration.getAuths().get(currentSession)).get();
+        UserPrincipal user = currentPrincipal.get();
+        if (user != null)
             return getAuthUserResponse(user);
-        }
         else {
             ResultResponse response = new ResultResponse();
             response.setResult(false);
@@ -104,7 +91,9 @@ public class AuthServiceImpl implements AuthService {
      * Метод restore
      * Метод проверяет наличие в базе пользователя с указанным e-mail. Если
      * пользователь найден, ему должно отправляться письмо со ссылкой на
-     * восстановление пароля
+     * восстановление пароля. Письмо ставится в очередь и отправляется в фоне
+     *
+     * @see MailQueue
      */
     @Override
     public ResultResponse restore(EmailRequest request) {
@@ -120,11 +109,8 @@ public class AuthServiceImpl implements AuthService {
                     httpServletRequest.getServerPort()
                     + "/login/change-password/" + output;
 
-            SimpleMailMessage msg = new SimpleMailMessage();
-            msg.setTo(request.getEmail());
-            msg.setSubject("Ссылка для восстановления пароля");
-            msg.setText(output);
-            javaMailSender.send(msg);
+            mailQueue.enqueue(request.getEmail(),
+                    "Ссылка для восстановления пароля", output);
 
             response.setResult(true);
         }
@@ -136,19 +122,19 @@ public class AuthServiceImpl implements AuthService {
     /**
      * Метод changePassword
      * Метод проверяет корректность кода восстановления пароля (параметр code)
-     * и корректность кодов капчи
+     * и корректность кодов капчи. Капча проверяется последней, чтобы при
+     * ошибке в других полях она оставалась неиспользованной
      */
     @Override
     public ResultResponse changePassword(ChangePasswordRequest request) {
         User user = userRepository.findByCode(request.getCode());
         CodePasCapResp errors = new CodePasCapResp();
         if (user != null) {
-            String secretCode = captchaCodeRepository
-                    .findSecretByCode(request.getCaptcha());
-            if (secretCode == null)
-                errors.setCaptcha("Код с картинки введён неверно");
             if (request.getPassword().length() < 6)
                 errors.setPassword("Пароль короче 6-ти символов");
+            else if (!captchaService.verify(request.getCaptcha(),
+                    request.getCaptcha_secret()))
+                errors.setCaptcha("Код с картинки введён неверно");
         }
         else
             errors.setCode("Ссылка для восстановления пароля устарела. " +
@@ -164,6 +150,7 @@ public class AuthServiceImpl implements AuthService {
         else {
             user.setPassword(request.getPassword());
             userRepository.saveAndFlush(user);
+            userService.invalidate(user.getName());
             ResultResponse response = new ResultResponse();
             response.setResult(true);
             return response;
@@ -172,12 +159,13 @@ public class AuthServiceImpl implements AuthService {
 
     /**
      * Метод register
-     * Метод создаёт пользователя в базе данных, если введённые данные верны
+     * Метод создаёт пользователя в базе данных, если введённые данные верны.
+     * Капча проверяется последней, чтобы при ошибке в других полях она
+     * оставалась неиспользованной
      */
     @Override
     public Object register(RegisterRequest request) {
-        String multiUser = globalSettingsRepository.multiUser();
-        if (multiUser.equals("NO"))
+        if (!blogSettingsCache.get().isMultiUserMode())
             return new ResponseEntity(HttpStatus.NOT_FOUND);
         else {
             EmailNameCapResp errors = new EmailNameCapResp();
@@ -187,8 +175,10 @@ public class AuthServiceImpl implements AuthService {
                 errors.setName("Имя указано неверно");
             if (request.getPassword().length() < 6)
                 errors.setPassword("Пароль короче 6-ти символов");
-            if (!request.getCaptcha_secret().equals(
-                    captchaCodeRepository.findSecretByCode(request.getCaptcha())))
+            if (errors.getEmail() == null && errors.getName() == null &&
+                    errors.getPassword() == null &&
+                    !captchaService.verify(request.getCaptcha(),
+                            request.getCaptcha_secret()))
                 errors.setCaptcha("Код с картинки введён неверно");
 
             if ((errors.getEmail() != null) ||
@@ -219,51 +209,18 @@ public class AuthServiceImpl implements AuthService {
 
     /**
      * Метод captcha
-     * Метод генерирует коды капчи, - отображаемый и секретный, - сохраняет их в
-     * базу данных и возвращает секретный код secret и изображение размером
-     * 100х35
+     * Метод берёт готовую капчу из пула и возвращает секретный код secret и
+     * изображение размером 100х35
+     *
+     * @see CaptchaPool
+     * @see CaptchaService
      */
     @Override
-    public CaptchaResponse captcha() throws IOException {
-        CaptchaCode captchaCode = new CaptchaCode();
-        Cage cage = new GCage();
-        OutputStream outputStream = new FileOutputStream(
-                "captcha.jpg", false);
-
-        String code = cage.getTokenGenerator().next();
-        String secretCode = generateSecret();
-        captchaCode.setCode(code);
-        captchaCode.setSecretCode(secretCode);
-        captchaCode.setTime(new Date());
-        captchaCodeRepository.saveAndFlush(captchaCode);
-
-        cage.draw(code, outputStream);
-        outputStream.close();
-
-        File file = new File("captcha.jpg");
-
-        BufferedImage image = ImageIO.read(file);
-        BufferedImage newImage = new BufferedImage(
-                100, 35, BufferedImage.TYPE_INT_RGB);
-        for (int x = 0; x < 100; x++)
-            for (int y = 0; y < 35; y++) {
-                int rgb = image.getRGB(x * 2, y * 2);
-                newImage.setRGB(x, y, rgb);
-            }
-        File newFile = new File("smallCaptcha.jpg");
-        ImageIO.write(newImage, "jpg", newFile);
-        String imageCode = Base64.getEncoder().encodeToString(
-                FileUtils.readFileToByteArray(newFile));
-
+    public CaptchaResponse captcha() {
+        CaptchaPool.Captcha captcha = captchaPool.take();
         CaptchaResponse response = new CaptchaResponse();
-        response.setSecret(secretCode);
-        response.setImage("data:image/png;base64, " + imageCode);
-
-        captchaCodeRepository.deleteOldCaptchas(captchaTime);
-
-        file.delete();
-        newFile.delete();
-
+        response.setSecret(captchaService.issue(captcha.getCode()));
+        response.setImage(captcha.getImage());
         return response;
     }
 
@@ -277,12 +234,13 @@ public class AuthServiceImpl implements AuthService {
         String currentSession = RequestContextHolder
                 .currentRequestAttributes().getSessionId();
         authConfiguration.deleteAuth(currentSession);
+        currentPrincipal.reset();
         ResultResponse response = new ResultResponse();
         response.setResult(true);
         return response;
     }
 
-    private AuthResUserResp getAuthUserResponse(User userFromDB) {
+    private AuthResUserResp getAuthUserResponse(UserPrincipal userFromDB) {
         AuthUserResp user = new AuthUserResp();
         user.setId(userFromDB.getId());
         user.setName(userFromDB.getName());
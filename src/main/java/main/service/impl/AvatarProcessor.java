@@ -0,0 +1,224 @@
+package main.service.impl;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import main.service.ImageStorage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.annotation.PreDestroy;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Класс AvatarProcessor
+ * Обработка загруженных аватаров. Изображение декодируется сразу
+ * уменьшенным (ImageReadParam с прореживанием и вырезанием центрального
+ * квадрата), поэтому даже фото на 10 Мб не раскладывается в памяти
+ * целиком. Из него усреднением по площади получаются аватары 144, 72 и 36
+ * пикселей, каждый следующий - из предыдущего. Обработка идёт в пуле
+ * avatar.workers потоков с очередью avatar.queueSize: при переполнении
+ * или если обработка не уложилась в avatar.timeout, загрузка отклоняется,
+ * а не исчерпывает память. Три аватара сохраняются в хранилище
+ * последовательно в том же потоке пула
+ *
+ * @version 1.2
+ */
+@Service
+public class AvatarProcessor {
+    public static final int SMALL = 36;
+    public static final int MEDIUM = 72;
+    public static final int LARGE = 144;
+    // декодируем не меньше чем в два раза крупнее самого большого аватара,
+    // чтобы усреднение по площади было не вырожденным
+    private static final int DECODE_SIZE = LARGE * 2;
+
+    private final ImageStorage imageStorage;
+    private final ThreadPoolExecutor executor;
+    private final long timeout;
+
+    public AvatarProcessor(ImageStorage imageStorage,
+                           @Value("${avatar.workers:2}") int workers,
+                           @Value("${avatar.queueSize:16}") int queueSize,
+                           @Value("${avatar.timeout:30000}") long timeout,
+                           MeterRegistry meterRegistry) {
+        this.imageStorage = imageStorage;
+        this.timeout = timeout;
+        AtomicInteger number = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workers, workers,
+                0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueSize),
+                task -> {
+                    Thread thread = new Thread(task,
+                            "avatar-" + number.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        Gauge.builder("avatars.queue.depth", executor,
+                pool -> pool.getQueue().size())
+                .register(meterRegistry);
+        Gauge.builder("avatars.active", executor,
+                ThreadPoolExecutor::getActiveCount)
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Метод process
+     * Метод делает из фото аватары всех размеров и сохраняет их в хранилище
+     *
+     * @return размер -> URL аватара или null, если файл не является
+     * изображением
+     * @throws RejectedExecutionException если очередь обработки заполнена,
+     * обработка не уложилась в avatar.timeout или поток прерван
+     * @throws UnreadableImageException если изображение повреждено
+     */
+    public Map<Integer, String> process(MultipartFile photo)
+            throws IOException {
+        Future<Map<Integer, String>> result =
+                executor.submit(() -> resize(photo));
+        try {
+            return result.get(timeout, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException(
+                    "Avatar processing interrupted", e);
+        }
+        catch (TimeoutException e) {
+            result.cancel(true);
+            throw new RejectedExecutionException(
+                    "Avatar processing timed out", e);
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException)
+                throw (IOException) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private Map<Integer, String> resize(MultipartFile photo)
+            throws IOException {
+        BufferedImage image = decode(photo);
+        if (image == null)
+            return null;
+        int side = Math.min(image.getWidth(), image.getHeight());
+        int[] pixels = image.getRGB(0, 0, side, side, null, 0, side);
+        Map<Integer, String> urls = new HashMap<>();
+        for (int size : new int[]{LARGE, MEDIUM, SMALL}) {
+            pixels = downscale(pixels, side, size);
+            side = size;
+            urls.put(size, imageStorage.store(encode(pixels, size), "jpg"));
+        }
+        return urls;
+    }
+
+    /**
+     * Метод decode
+     * Метод декодирует центральный квадрат изображения, прореживая строки и
+     * столбцы так, чтобы сторона была не меньше DECODE_SIZE
+     */
+    private static BufferedImage decode(MultipartFile photo)
+            throws IOException {
+        try (InputStream input = photo.getInputStream();
+             ImageInputStream stream = ImageIO.createImageInputStream(input)) {
+            if (stream == null)
+                return null;
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(stream);
+            if (!readers.hasNext())
+                return null;
+            ImageReader reader = readers.next();
+            try {
+                return read(reader, stream);
+            }
+            // повреждённый или обрезанный файл, в т.ч. ошибки декодеров
+            catch (IOException | RuntimeException e) {
+                throw new UnreadableImageException(e);
+            }
+            finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static BufferedImage read(ImageReader reader,
+                                      ImageInputStream stream)
+            throws IOException {
+        reader.setInput(stream, true, true);
+        int width = reader.getWidth(0);
+        int height = reader.getHeight(0);
+        int side = Math.min(width, height);
+        int step = Math.max(1, side / DECODE_SIZE);
+        ImageReadParam param = reader.getDefaultReadParam();
+        param.setSourceRegion(new Rectangle((width - side) / 2,
+                (height - side) / 2, side, side));
+        param.setSourceSubsampling(step, step, 0, 0);
+        return reader.read(0, param);
+    }
+
+    /**
+     * Метод downscale
+     * Метод уменьшает квадратное изображение усреднением по площади:
+     * каждый пиксель результата - среднее пикселей исходного, которые он
+     * накрывает
+     */
+    private static int[] downscale(int[] source, int sourceSize, int size) {
+        int[] target = new int[size * size];
+        for (int y = 0; y < size; y++) {
+            int top = y * sourceSize / size;
+            int bottom = Math.max(top + 1, (y + 1) * sourceSize / size);
+            for (int x = 0; x < size; x++) {
+                int left = x * sourceSize / size;
+                int right = Math.max(left + 1, (x + 1) * sourceSize / size);
+                long red = 0, green = 0, blue = 0;
+                for (int row = top; row < bottom; row++)
+                    for (int column = left; column < right; column++) {
+                        int rgb = source[row * sourceSize + column];
+                        red += (rgb >> 16) & 0xFF;
+                        green += (rgb >> 8) & 0xFF;
+                        blue += rgb & 0xFF;
+                    }
+                int count = (bottom - top) * (right - left);
+                target[y * size + x] = (int) (red / count) << 16
+                        | (int) (green / count) << 8 | (int) (blue / count);
+            }
+        }
+        return target;
+    }
+
+    private static byte[] encode(int[] pixels, int size) throws IOException {
+        BufferedImage image = new BufferedImage(
+                size, size, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(0, 0, size, size, pixels, 0, size);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", output);
+        return output.toByteArray();
+    }
+
+    /**
+     * Класс UnreadableImageException
+     * Файл распознан как изображение, но не декодируется
+     */
+    public static class UnreadableImageException extends IOException {
+        public UnreadableImageException(Throwable cause) {
+            super("Unreadable image", cause);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package main.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import main.model.GlobalSetting;
+import main.model.helper.BlogSettings;
+import main.model.request.others.SettingsRequest;
+import main.repository.GlobalSettingsRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Класс BlogSettingsCache
+ * Глобальные настройки блога в памяти. Снимок заменяется целиком при
+ * изменении настроек и периодически перечитывается из БД, чтобы изменения,
+ * сделанные на других экземплярах приложения, тоже применялись. Чтение
+ * из БД и запись настроек не пересекаются, поэтому перечитывание не
+ * возвращает снимок, прочитанный до записи
+ *
+ * @version 1.1
+ */
+@Service
+@RequiredArgsConstructor
+public class BlogSettingsCache {
+    private final GlobalSettingsRepository globalSettingsRepository;
+
+    private final AtomicReference<BlogSettings> settings =
+            new AtomicReference<>();
+
+    public BlogSettings get() {
+        return settings.get();
+    }
+
+    /**
+     * Метод refresh
+     * Метод перечитывает настройки из БД. Запускается при старте и по
+     * расписанию settings.refreshDelay
+     */
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${settings.refreshDelay:60000}")
+    public synchronized void refresh() {
+        settings.set(BlogSettings.of(globalSettingsRepository.findAll()));
+    }
+
+    /**
+     * Метод update
+     * Метод записывает настройки в таблицу global_settings и заменяет снимок
+     */
+    public synchronized void update(SettingsRequest request) {
+        List<GlobalSetting> rows = globalSettingsRepository.findAll();
+        for (GlobalSetting row : rows) {
+            switch (row.getCode()) {
+                case "MULTIUSER_MODE":
+                    row.setValue(toValue(request.isMultiUserMode()));
+                    break;
+                case "POST_PREMODERATION":
+                    row.setValue(toValue(request.isPostPreModeration()));
+                    break;
+                case "STATISTICS_IS_PUBLIC":
+                    row.setValue(toValue(request.isStatisticsIsPublic()));
+                    break;
+                default:
+            }
+        }
+        settings.set(BlogSettings.of(globalSettingsRepository.saveAll(rows)));
+    }
+
+    private static String toValue(boolean enabled) {
+        return enabled ? "YES" : "NO";
+    }
+}
@@ -0,0 +1,125 @@
+package main.service.impl;
+
+import com.github.cage.Cage;
+import com.github.cage.GCage;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.imageio.ImageIO;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Класс CaptchaPool
+ * Пул готовых капч: фоновый поток рисует капчи в памяти и держит очередь
+ * заполненной, а запрос капчи берёт готовую из очереди. Если очередь пуста,
+ * капча рисуется в потоке запроса
+ *
+ * @version 1.1
+ */
+@Service
+public class CaptchaPool {
+    private static final Logger log = LoggerFactory.getLogger(CaptchaPool.class);
+    private static final int WIDTH = 100;
+    private static final int HEIGHT = 35;
+
+    private final BlockingQueue<Captcha> pool;
+    private Thread filler;
+
+    public CaptchaPool(@Value("${captcha.poolSize:200}") int poolSize) {
+        pool = new ArrayBlockingQueue<>(poolSize);
+    }
+
+    @PostConstruct
+    public void start() {
+        filler = new Thread(this::fill, "captcha-pool");
+        filler.setDaemon(true);
+        filler.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        filler.interrupt();
+    }
+
+    /**
+     * Метод take
+     * Метод возвращает капчу, которая ещё не выдавалась
+     */
+    public Captcha take() {
+        Captcha captcha = pool.poll();
+        return captcha == null ? render(new GCage()) : captcha;
+    }
+
+    // количество готовых капч в очереди
+    int available() {
+        return pool.size();
+    }
+
+    private void fill() {
+        Cage cage = new GCage();
+        try {
+            while (!Thread.currentThread().isInterrupted())
+                pool.put(render(cage));
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        catch (RuntimeException e) {
+            log.error("Captcha pool filler stopped", e);
+        }
+    }
+
+    /**
+     * Метод render
+     * Метод рисует капчу и уменьшает её до 100х35 без записи на диск.
+     * Экземпляр Cage не потокобезопасен, у каждого потока он свой
+     */
+    private static Captcha render(Cage cage) {
+        String code = cage.getTokenGenerator().next();
+        BufferedImage image = cage.drawImage(code);
+        BufferedImage small = new BufferedImage(
+                WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = small.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+                RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        graphics.drawImage(image, 0, 0, WIDTH, HEIGHT, null);
+        graphics.dispose();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        // ImageIO по умолчанию буферизует поток во временном файле
+        try (ImageOutputStream stream =
+                     new MemoryCacheImageOutputStream(output)) {
+            ImageIO.write(small, "jpg", stream);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new Captcha(code, "data:image/jpeg;base64, " +
+                Base64.getEncoder().encodeToString(output.toByteArray()));
+    }
+
+    /**
+     * Класс Captcha
+     * Код капчи и её изображение в виде data URI
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Captcha {
+        private final String code;
+        private final String image;
+    }
+}
@@ -0,0 +1,33 @@
+package main.service.impl;
+
+import com.cloudinary.Cloudinary;
+import com.cloudinary.utils.ObjectUtils;
+import lombok.RequiredArgsConstructor;
+import main.service.ImageStorage;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Класс CloudinaryImageStorage
+ * Изображения загружаются в cloudinary. Хранилище по умолчанию,
+ * image.storage: cloudinary
+ *
+ * @version 1.0
+ */
+@Service
+@ConditionalOnProperty(name = "image.storage", havingValue = "cloudinary",
+        matchIfMissing = true)
+@RequiredArgsConstructor
+public class CloudinaryImageStorage implements ImageStorage {
+    private final Cloudinary cloudinary;
+
+    @Override
+    public String store(byte[] content, String extension) throws IOException {
+        Map uploadResult = cloudinary.uploader()
+                .upload(content, ObjectUtils.emptyMap());
+        return uploadResult.get("url").toString();
+    }
+}
@@ -0,0 +1,111 @@
+package main.service.impl;
+
+import main.model.helper.PostChangedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Класс ContentVersions
+ * Версии содержимого блога для условных GET запросов: версия лент постов,
+ * версия тэгов и календаря и версия каждого поста. Версии только растут и
+ * увеличиваются при изменении постов, модерации, публикации по времени,
+ * голосовании и комментировании. Запись просмотров в БД меняет только
+ * версию поста: просмотры идут постоянно, и ленты с ними почти никогда не
+ * отдавались бы ответом 304. ETag строится из версии и времени запуска
+ * приложения, поэтому после перезапуска старые ETag не совпадают
+ *
+ * @version 1.1
+ */
+@Service
+public class ContentVersions {
+    private final String epoch =
+            Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+    private final AtomicLong feeds = new AtomicLong();
+    private final AtomicLong catalog = new AtomicLong();
+    // общая часть версий всех постов
+    private final AtomicLong generation = new AtomicLong();
+    private final Map<Integer, Long> posts = new ConcurrentHashMap<>();
+
+    /**
+     * Метод feedTag
+     * ETag лент постов. Ленты "Мои публикации" и модерации зависят от
+     * пользователя, поэтому в ETag входит его id
+     *
+     * @param userId id текущего пользователя, null - не авторизован
+     */
+    public String feedTag(Integer userId) {
+        return tag("f" + feeds.get() + "u" + (userId == null ? 0 : userId));
+    }
+
+    /**
+     * Метод catalogTag
+     * ETag списка тэгов и календаря публикаций
+     */
+    public String catalogTag() {
+        return tag("c" + catalog.get());
+    }
+
+    /**
+     * Метод postTag
+     * ETag страницы поста и его комментариев
+     */
+    public String postTag(int postId) {
+        return tag("p" + generation.get() + "."
+                + posts.getOrDefault(postId, 0L));
+    }
+
+    /**
+     * Метод postUpdated
+     * Метод отмечает изменение счётчиков или комментариев поста, которое не
+     * меняет набор опубликованных постов. Вызывается после записи в БД и
+     * сброса кэшей поста
+     */
+    public void postUpdated(int postId) {
+        posts.merge(postId, 1L, Long::sum);
+        feeds.incrementAndGet();
+    }
+
+    /**
+     * Метод postViewed
+     * Метод отмечает запись просмотров поста в БД. Количество просмотров в
+     * лентах обновляется со следующим изменением лент
+     */
+    public void postViewed(int postId) {
+        posts.merge(postId, 1L, Long::sum);
+    }
+
+    /**
+     * Метод onPostChanged
+     * Изменение, публикация или модерация поста меняет ещё и тэги с
+     * календарём. Вызывается после остальных обработчиков события, чтобы
+     * новая версия не досталась ещё не обновлённым данным
+     */
+    @EventListener
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onPostChanged(PostChangedEvent event) {
+        posts.merge(event.getPostId(), 1L, Long::sum);
+        feeds.incrementAndGet();
+        catalog.incrementAndGet();
+    }
+
+    /**
+     * Метод allUpdated
+     * Метод меняет все версии, например после пересчёта счётчиков,
+     * изменившего данные
+     */
+    public void allUpdated() {
+        generation.incrementAndGet();
+        feeds.incrementAndGet();
+        catalog.incrementAndGet();
+    }
+
+    private String tag(String version) {
+        return "\"" + epoch + "-" + version + "\"";
+    }
+}
@@ -0,0 +1,67 @@
+package main.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import main.config.AuthConfiguration;
+import main.model.helper.UserPrincipal;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.annotation.RequestScope;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * Класс CurrentPrincipal
+ * Авторизованный пользователь текущего запроса. Определяется один раз за
+ * запрос: по id сессии в AuthConfiguration и затем по PrincipalCache
+ *
+ * @version 1.0
+ */
+@Component
+@RequestScope
+@RequiredArgsConstructor
+public class CurrentPrincipal {
+    private final AuthConfiguration authConfiguration;
+    private final PrincipalCache principalCache;
+
+    private boolean resolved;
+    private UserPrincipal principal;
+
+    /**
+     * Метод get
+     * Метод возвращает данные авторизованного пользователя
+     *
+     * @return данные пользователя или null, если сессия не авторизована
+     */
+    public UserPrincipal get() {
+        if (!resolved) {
+            String sessionId = RequestContextHolder
+                    .currentRequestAttributes().getSessionId();
+            Integer userId = authConfiguration.getAuth(sessionId);
+            principal = userId == null ? null : principalCache.get(userId);
+            resolved = true;
+        }
+        return principal;
+    }
+
+    /**
+     * Метод getId
+     * Метод возвращает id авторизованного пользователя или null
+     */
+    public Integer getId() {
+        UserPrincipal current = get();
+        return current == null ? null : current.getId();
+    }
+
+    public boolean isModerator() {
+        UserPrincipal current = get();
+        return current != null && current.isModerator();
+    }
+
+    /**
+     * Метод reset
+     * Метод сбрасывает пользователя запроса после входа, выхода или
+     * изменения профиля
+     */
+    public void reset() {
+        resolved = false;
+        principal = null;
+    }
+}
@@ -0,0 +1,55 @@
+package main.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import main.model.CaptchaCode;
+import main.repository.CaptchaCodeRepository;
+import main.service.CaptchaService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.security.SecureRandom;
+import java.util.Date;
+
+/**
+ * Класс DatabaseCaptchaService
+ * Коды капчи хранятся в таблице captcha_codes и удаляются через captchaTime
+ * часов, а использованный код - сразу при проверке. Включается настройкой
+ * captcha.stateless: false
+ *
+ * @version 1.1
+ */
+@Service
+@ConditionalOnProperty(name = "captcha.stateless", havingValue = "false")
+@RequiredArgsConstructor
+public class DatabaseCaptchaService implements CaptchaService {
+    private static final char[] CHARS =
+            "abcdefghijklmnopqrstuvwxyz0123456789".toCharArray();
+    private static final int SECRET_LENGTH = 45;
+
+    private final CaptchaCodeRepository captchaCodeRepository;
+    private final SecureRandom random = new SecureRandom();
+
+    @Value("${captchaTime}")
+    private int captchaTime;
+
+    @Override
+    public String issue(String code) {
+        StringBuilder secret = new StringBuilder(SECRET_LENGTH);
+        for (int i = 0; i < SECRET_LENGTH; i++)
+            secret.append(CHARS[random.nextInt(CHARS.length)]);
+        CaptchaCode captchaCode = new CaptchaCode();
+        captchaCode.setCode(code);
+        captchaCode.setSecretCode(secret.toString());
+        captchaCode.setTime(new Date());
+        captchaCodeRepository.saveAndFlush(captchaCode);
+        captchaCodeRepository.deleteOldCaptchas(captchaTime);
+        return secret.toString();
+    }
+
+    @Override
+    public boolean verify(String code, String secret) {
+        return code != null && secret != null
+                && captchaCodeRepository.deleteCaptcha(code, secret) > 0;
+    }
+}
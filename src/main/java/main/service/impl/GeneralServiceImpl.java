@@ -1,10 +1,9 @@
 package main.service.impl;
 
-import com.cloudinary.Cloudinary;
-import com.cloudinary.utils.ObjectUtils;
 import lombok.RequiredArgsConstructor;
-import main.config.AuthConfiguration;
 import main.model.*;
+import main.model.helper.BlogSettings;
+import main.model.helper.PostChangedEvent;
 import main.model.helper.PostStatus;
 import main.model.response.results.Error;
 import main.repository.*;
@@ -17,19 +16,19 @@ import main.model.response.others.*;
 import main.model.response.passwords.EmailNamePhotoResp;
 import main.model.response.results.ResultResponse;
 import main.service.GeneralService;
+import main.service.ImageStorage;
+import main.service.UserService;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
-import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.multipart.MultipartFile;
 
-import javax.imageio.ImageIO;
 import javax.persistence.*;
-import javax.servlet.http.HttpServletRequest;
-import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Класс GeneralServiceImpl
@@ -41,15 +40,21 @@ import java.util.*;
 @RequiredArgsConstructor
 public class GeneralServiceImpl implements GeneralService {
     private final Blog blog;
-    private final Cloudinary cloudinary;
-    private final HttpServletRequest request;
+    private final ImageStorage imageStorage;
+    private final AvatarProcessor avatarProcessor;
     private final PostRepository postRepository;
     private final UserRepository userRepository;
-    private final PostCommentRepository commentRepository;
-    private final GlobalSettingsRepository globalSettingsRepository;
-    private final AuthConfiguration authConfiguration;
-    private final Tag2PostRepository tag2PostRepository;
-    private final TagRepository tagRepository;
+    private final PostComments postComments;
+    private final PostViewCache postViewCache;
+    private final ContentVersions contentVersions;
+    private final BlogSettingsCache blogSettingsCache;
+    private final CurrentPrincipal currentPrincipal;
+    private final PrincipalCache principalCache;
+    private final UserService userService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TagCloud tagCloud;
+    private final PostCalendar postCalendar;
+    private final PostStatistics postStatistics;
 
     @PersistenceContext
     private EntityManager entityManager;
@@ -65,35 +70,41 @@ public class GeneralServiceImpl implements GeneralService {
 
     /**
      * Метод imageUpload
-     * Метод загружает на сервер изображение в папку upload
+     * Метод сохраняет изображение в хранилище и возвращает его адрес
+     *
+     * @see ImageStorage
      */
     @Override
     public ResponseEntity imageUpload(MultipartFile file)
             throws IOException {
         String response = null;
         ImageResponse errors = new ImageResponse();
-        if (!file.getOriginalFilename().endsWith("jpg") &&
-                !file.getOriginalFilename().endsWith("png"))
+        String extension = extension(file.getOriginalFilename());
+        if (!extension.equals("jpg") && !extension.equals("png"))
             errors.setImage("Файл не является изображением");
         if (file.getSize() > 1048576)
             errors.setImage("Размер файла превышает допустимый размер");
         if (errors.getImage() != null) {
             return new ResponseEntity(HttpStatus.BAD_REQUEST);
         }
-        if (!file.isEmpty()) {
-            String realPathToUploads = request.getServletContext().getRealPath("")
-                    + file.getOriginalFilename();
-            File dest = new File(realPathToUploads);
-            file.transferTo(dest);
-            Map uploadResult = cloudinary.uploader().upload(dest, ObjectUtils.emptyMap());
-            response = uploadResult.get("url").toString();
-        }
+        if (!file.isEmpty())
+            response = imageStorage.store(file.getBytes(), extension);
         return ResponseEntity.ok(response);
     }
 
+    // расширение после последней точки или "", если точки нет
+    private static String extension(String name) {
+        if (name == null || name.lastIndexOf('.') < 0)
+            return "";
+        return name.substring(name.lastIndexOf('.') + 1)
+                .toLowerCase(Locale.ROOT);
+    }
+
     /**
      * Метод sendComment
      * Метод добавляет комментарий к посту
+     *
+     * @see PostComments
      */
     @Override
     public Object sendComment(CommentRequest request) {
@@ -109,30 +120,20 @@ public class GeneralServiceImpl implements GeneralService {
             return response;
         }
         IdResponse response = new IdResponse();
+        if (request.getParent_id() != 0 && !postComments.exists(
+                request.getPostId(), request.getParent_id()))
+            return response;
         try {
-            Post post = postRepository.getOne(request.getPostId());
-            PostComment comment = new PostComment();
-            PostComment parentComment = commentRepository
-                    .getOne(request.getParent_id());
-            if (parentComment.getId() != 0) {
-                String tempText = parentComment.getText();
-            }
-            String currentSession = RequestContextHolder
-                    .currentRequestAttributes().getSessionId();
-            int id = authConfiguration.getAuths().get(currentSession);
-            User user = userRepository.getOne(id);
-            comment.setParentId(request.getParent_id());
-            comment.setPost(post);
-            comment.setText(request.getText());
-            comment.setTime(new Date());
-            comment.setUser(user);
-            post.addPostComment(comment);
-            postRepository.saveAndFlush(post);
-            response.setId(commentRepository.findIdByTime(comment.getTime()));
+            response.setId(postComments.add(request.getPostId(),
+                    request.getParent_id(), currentPrincipal.getId(),
+                    request.getText()));
         }
-        catch (EntityNotFoundException e) {
+        catch (DataIntegrityViolationException e) {
             return response;
         }
+        postRepository.updateCommentsCounter(request.getPostId(), 1);
+        postViewCache.invalidate(request.getPostId());
+        contentVersions.postUpdated(request.getPostId());
         return response;
     }
 
@@ -141,45 +142,12 @@ public class GeneralServiceImpl implements GeneralService {
      * Метод выдаёт список тэгов, начинающихся на строку, заданную в параметре
      *
      * @param query часть тэга или тэг, м.б. не задан, м.б. пустым
+     * @see TagCloud
      */
     @Override
     public TagsResponse getListOfTags(String query) {
-        List<String> tagList;
-        if (query == null)
-            tagList = tagRepository.findNamesOfTags();
-        else
-            tagList = tagRepository.findByName(query);
-        List<TagToPost> tagToPostList = tag2PostRepository
-                .findActiveTagToPosts();
-        Map<String, Float> fullMap = new HashMap<>();
-        for (TagToPost tagToPost : tagToPostList) {
-            String key = tagRepository.getOne(tagToPost.getTagId()).getName();
-            float newValue;
-            if (fullMap.containsKey(key))
-                newValue = fullMap.get(key) + 1;
-            else
-                newValue = 1;
-            fullMap.put(key, newValue);
-        }
-        float maxWeigh = 0;
-        List<NameWeightResp> tags = new ArrayList<>();
-        for (String key : fullMap.keySet()) {
-            float value = fullMap.get(key) / fullMap.size();
-            if (value > maxWeigh)
-                maxWeigh = value;
-            if (tagList.contains(key)) {
-                NameWeightResp tag = new NameWeightResp();
-                tag.setName(key);
-                tag.setWeight(value);
-                tags.add(tag);
-            }
-        }
-        for (NameWeightResp current : tags) {
-            float newWeight = current.getWeight()/maxWeigh;
-            current.setWeight(newWeight);
-        }
         TagsResponse response = new TagsResponse();
-        response.setTags(tags);
+        response.setTags(tagCloud.getWeights(query));
         return response;
     }
 
@@ -193,12 +161,7 @@ public class GeneralServiceImpl implements GeneralService {
         ResultResponse response = new ResultResponse();
         response.setResult(false);
 
-        String currentSession = RequestContextHolder
-                .currentRequestAttributes().getSessionId();
-        int id = authConfiguration.getAuths().get(currentSession);
-        User user = userRepository.findById(id).get();
-
-        if (user.isModerator()) {
+        if (currentPrincipal.isModerator()) {
             int postId = request.getPostId();
             Post post = postRepository.getOne(postId);
 
@@ -210,10 +173,11 @@ public class GeneralServiceImpl implements GeneralService {
             else
                 return response;
 
-            int moderatorId = user.getId();
+            int moderatorId = currentPrincipal.getId();
             post.setModeratorId(moderatorId);
 
             postRepository.saveAndFlush(post);
+            eventPublisher.publishEvent(PostChangedEvent.of(post));
 
             response.setResult(true);
             return response;
@@ -228,36 +192,15 @@ public class GeneralServiceImpl implements GeneralService {
      *
      * @param year год в виде четырёхзначного числа, если не передан -
      *             возвращать за текущий год
+     * @see PostCalendar
      */
     @Override
     public YearsPostsResponse numberOfPosts(Integer year) {
-        List<Post> postList = postRepository.findAll();
-        Set<Integer> years = new TreeSet<>();
-        for (Post post : postList) {
-            int currentYear =
-                    Integer.parseInt(post.getTime().toString().substring(0, 4));
-            years.add(currentYear);
-        }
-        String parameter;
-        if (year == null) {
-            int currentYear = Calendar.getInstance().get(Calendar.YEAR);
-            parameter = String.valueOf(currentYear);
-        }
-        else
-            parameter = String.valueOf(year);
-        List<String> allDays = postRepository.getPostsForTheYear(parameter);
-        Map<String, Integer> posts = new HashMap<>();
-        for (String day : allDays) {
-            int value;
-            if (posts.containsKey(day))
-                value = posts.get(day) + 1;
-            else
-                value = 1;
-            posts.put(day, value);
-        }
+        if (year == null)
+            year = Calendar.getInstance().get(Calendar.YEAR);
         YearsPostsResponse response = new YearsPostsResponse();
-        response.setYears(years);
-        response.setPosts(posts);
+        response.setYears(postCalendar.getYears());
+        response.setPosts(postCalendar.getDays(year));
 
         return response;
     }
@@ -269,7 +212,7 @@ public class GeneralServiceImpl implements GeneralService {
      */
     @Override
     public ResultResponse editProfile(ProfileRequest request) {
-        User user = getUser(authConfiguration, userRepository);
+        User user = getUser();
         EmailNamePhotoResp errors = checkErrors
                 (userRepository, request, user);
         if ((errors.getEmail() != null) ||
@@ -280,13 +223,21 @@ public class GeneralServiceImpl implements GeneralService {
             return response;
         }
         else {
+            String oldName = user.getName();
             user.setName(request.getName());
             user.setEmail(request.getEmail());
             if (request.getPassword() != null)
                 user.setPassword(request.getPassword());
-            if (request.getRemovePhoto() == 1)
+            if (request.getRemovePhoto() == 1) {
                 user.setPhoto(null);
+                user.setPhoto72(null);
+                user.setPhoto144(null);
+            }
             userRepository.saveAndFlush(user);
+            principalCache.invalidate(user.getId());
+            userService.invalidate(oldName);
+            userService.invalidate(user.getName());
+            currentPrincipal.reset();
             ResultResponse response = new ResultResponse();
             response.setResult(true);
             return response;
@@ -301,7 +252,7 @@ public class GeneralServiceImpl implements GeneralService {
     @Override
     public ResultResponse editProfileWithPhoto(ProfileRequest requestWithPhoto)
             throws IOException {
-        User user = getUser(authConfiguration, userRepository);
+        User user = getUser();
         EmailNamePhotoResp errors = checkErrors
                 (userRepository, requestWithPhoto, user);
         if ((errors.getEmail() != null) ||
@@ -313,38 +264,38 @@ public class GeneralServiceImpl implements GeneralService {
             return response;
         }
         else {
+            Map<Integer, String> avatar;
+            try {
+                avatar = avatarProcessor.process(requestWithPhoto.getPhoto());
+                if (avatar == null)
+                    errors.setPhoto("Файл не является изображением");
+            }
+            catch (AvatarProcessor.UnreadableImageException e) {
+                avatar = null;
+                errors.setPhoto("Файл не является изображением");
+            }
+            catch (RejectedExecutionException e) {
+                avatar = null;
+                errors.setPhoto("Сервер занят, загрузите фото позже");
+            }
+            if (avatar == null) {
+                Error response = new Error();
+                response.setErrors(errors);
+                return response;
+            }
+            String oldName = user.getName();
             user.setName(requestWithPhoto.getName());
             user.setEmail(requestWithPhoto.getEmail());
             if (requestWithPhoto.getPassword() != null)
                 user.setPassword(requestWithPhoto.getPassword());
-            String realPathToUploads = request.getServletContext().getRealPath("");
-            String orgName = requestWithPhoto.getPhoto().getOriginalFilename();
-            String filePath = realPathToUploads + orgName;
-            File dest = new File(filePath);
-            requestWithPhoto.getPhoto().transferTo(dest);
-            BufferedImage image = ImageIO.read(dest);
-            BufferedImage newImage = new BufferedImage(
-                    36, 36, BufferedImage.TYPE_INT_RGB);
-            int startX = 0, startY = 0, step;
-            if (image.getWidth() > image.getHeight()) {
-                startX = image.getWidth() / 2 - image.getHeight() / 2;
-                step = image.getHeight() / 36;
-            }
-            else {
-                startY = image.getHeight() / 2 - image.getWidth() / 2;
-                step = image.getWidth() / 36;
-            }
-            for (int x = 0; x < 36; x++)
-                for (int y = 0; y < 36; y++) {
-                    int rgb = image.getRGB(
-                            x * step + startX, y * step + startY);
-                    newImage.setRGB(x, y, rgb);
-                }
-            File newFile = new File(realPathToUploads + "user" + user.getId() + "Ava.jpg");
-            ImageIO.write(newImage, "jpg", newFile);
-            Map uploadResult = cloudinary.uploader().upload(newFile, ObjectUtils.emptyMap());
-            user.setPhoto(uploadResult.get("url").toString());
+            user.setPhoto(avatar.get(AvatarProcessor.SMALL));
+            user.setPhoto72(avatar.get(AvatarProcessor.MEDIUM));
+            user.setPhoto144(avatar.get(AvatarProcessor.LARGE));
             userRepository.saveAndFlush(user);
+            principalCache.invalidate(user.getId());
+            userService.invalidate(oldName);
+            userService.invalidate(user.getName());
+            currentPrincipal.reset();
             ResultResponse response = new ResultResponse();
             response.setResult(true);
             return response;
@@ -357,30 +308,7 @@ public class GeneralServiceImpl implements GeneralService {
      */
     @Override
     public StatisticsResponse myStatistics() {
-        String currentSession = RequestContextHolder
-                .currentRequestAttributes().getSessionId();
-        int userId = authConfiguration.getAuths().get(currentSession);
-        StatisticsResponse response = new StatisticsResponse();
-        int postsCount = postRepository.getPostsCountOfUser(userId);
-        if (postsCount == 0) {
-            response.setPostsCount(0);
-            response.setLikesCount(0);
-            response.setDislikesCount(0);
-            response.setViewsCount(0);
-            response.setFirstPublication(0);
-        }
-        else {
-            response.setPostsCount(postsCount);
-            response.setLikesCount(postRepository
-                    .getLikesCountOfUsersPosts(userId));
-            response.setDislikesCount(postRepository
-                    .getDisLikesCountOfUsersPosts(userId));
-            response.setViewsCount(postRepository
-                    .getViewsCountOfUsersPosts(userId));
-            response.setFirstPublication(postRepository
-                    .getFirstPostOfUser(userId).getTime()/1000);
-        }
-        return response;
+        return postStatistics.getUserStatistics(currentPrincipal.getId());
     }
 
     /**
@@ -389,22 +317,11 @@ public class GeneralServiceImpl implements GeneralService {
      */
     @Override
     public Object allStatistics() {
-        String currentSession = RequestContextHolder
-                .currentRequestAttributes().getSessionId();
-        int userId = authConfiguration.getAuths().get(currentSession);
-        if ((userRepository.isAdmin(userId) == 0) &&
-                (globalSettingsRepository.statisticsIsPublic().equals("NO")))
+        if (!currentPrincipal.isModerator() &&
+                !blogSettingsCache.get().isStatisticsIsPublic())
             return new ResponseEntity(HttpStatus.FORBIDDEN);
-        else {
-            StatisticsResponse response = new StatisticsResponse();
-            response.setPostsCount(postRepository.getPostsCount());
-            response.setLikesCount(postRepository.getLikesCount());
-            response.setDislikesCount(postRepository.getDisLikesCount());
-            response.setViewsCount(postRepository.getViewsCount());
-            response.setFirstPublication(postRepository.getFirstPost()
-                    .getTime()/1000);
-            return response;
-        }
+        else
+            return postStatistics.getTotalStatistics();
     }
 
     /**
@@ -413,19 +330,11 @@ public class GeneralServiceImpl implements GeneralService {
      */
     @Override
     public SettingsResponse getSettings() {
+        BlogSettings settings = blogSettingsCache.get();
         SettingsResponse response = new SettingsResponse();
-        List <GlobalSetting> settings = globalSettingsRepository.findAll();
-        for (GlobalSetting setting : settings) {
-            if (setting.getCode().equals("MULTIUSER_MODE"))
-                response.setMultiUserMode(
-                        setting.getValue().equals("YES"));
-            if (setting.getCode().equals("POST_PREMODERATION"))
-                response.setPostPreModeration(
-                        setting.getValue().equals("YES"));
-            if (setting.getCode().equals("STATISTICS_IS_PUBLIC"))
-                response.setStatisticsIsPublic(
-                        setting.getValue().equals("YES"));
-        }
+        response.setMultiUserMode(settings.isMultiUserMode());
+        response.setPostPreModeration(settings.isPostPremoderation());
+        response.setStatisticsIsPublic(settings.isStatisticsIsPublic());
         return response;
     }
 
@@ -436,38 +345,12 @@ public class GeneralServiceImpl implements GeneralService {
      */
     @Override
     public void putSettings(SettingsRequest request) {
-        String currentSession = RequestContextHolder
-                .currentRequestAttributes().getSessionId();
-        int userId = authConfiguration.getAuths().get(currentSession);
-        if (userRepository.isAdmin(userId) == 1) {
-            List<GlobalSetting> settings = globalSettingsRepository.findAll();
-            for (GlobalSetting globalSetting : settings) {
-                if (globalSetting.getCode().equals("MULTIUSER_MODE"))
-                    if (request.isMultiUserMode())
-                        globalSetting.setValue("YES");
-                    else
-                        globalSetting.setValue("NO");
-                if (globalSetting.getCode().equals("POST_PREMODERATION"))
-                    if (request.isPostPreModeration())
-                        globalSetting.setValue("YES");
-                    else
-                        globalSetting.setValue("NO");
-                if (globalSetting.getCode().equals("STATISTICS_IS_PUBLIC"))
-                    if (request.isStatisticsIsPublic())
-                        globalSetting.setValue("YES");
-                    else
-                        globalSetting.setValue("NO");
-            }
-            globalSettingsRepository.saveAll(settings);
-        }
+        if (currentPrincipal.isModerator())
+            blogSettingsCache.update(request);
     }
 
-    private static User getUser(AuthConfiguration authConfiguration,
-                                UserRepository userRepository) {
-        String currentSession = RequestContextHolder
-                .currentRequestAttributes().getSessionId();
-        int id = authConfiguration.getAuths().get(currentSession);
-        return userRepository.findById(id).get();
+    private User getUser() {
+        return userRepository.findById(currentPrincipal.getId()).get();
     }
 
     private static EmailNamePhotoResp checkErrors
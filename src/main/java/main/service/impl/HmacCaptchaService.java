@@ -0,0 +1,121 @@
+package main.service.impl;
+
+import main.service.CaptchaService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Класс HmacCaptchaService
+ * Капча без хранения в БД: секретный код - подписанный HMAC-SHA256 токен
+ * "срок действия:nonce:подпись", где подпись вычисляется по сроку, nonce и
+ * ответу капчи. Токен запоминается как использованный при первой успешной
+ * проверке и хранится в памяти до истечения его срока, чтобы токен нельзя
+ * было применить повторно.
+ * Для нескольких экземпляров приложения нужен общий ключ captcha.hmacKey,
+ * без него ключ генерируется при старте
+ *
+ * @version 1.1
+ */
+@Service
+@ConditionalOnProperty(name = "captcha.stateless", havingValue = "true",
+        matchIfMissing = true)
+public class HmacCaptchaService implements CaptchaService {
+    private static final Logger log =
+            LoggerFactory.getLogger(HmacCaptchaService.class);
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int NONCE_BYTES = 16;
+
+    private final SecureRandom random = new SecureRandom();
+    private final SecretKeySpec key;
+    private final long ttl;
+    // nonce использованного токена -> срок его действия
+    private final Map<String, Long> used = new ConcurrentHashMap<>();
+
+    public HmacCaptchaService(@Value("${captcha.hmacKey:}") String hmacKey,
+                              @Value("${captchaTime}") int captchaTime) {
+        byte[] keyBytes;
+        if (hmacKey.isEmpty()) {
+            log.warn("captcha.hmacKey is not set, using a random key");
+            keyBytes = new byte[32];
+            random.nextBytes(keyBytes);
+        }
+        else
+            keyBytes = hmacKey.getBytes(StandardCharsets.UTF_8);
+        key = new SecretKeySpec(keyBytes, ALGORITHM);
+        ttl = TimeUnit.HOURS.toMillis(captchaTime);
+    }
+
+    @Override
+    public String issue(String code) {
+        byte[] nonce = new byte[NONCE_BYTES];
+        random.nextBytes(nonce);
+        String payload = (System.currentTimeMillis() + ttl) + ":" +
+                Base64.getUrlEncoder().withoutPadding().encodeToString(nonce);
+        return payload + ":" + sign(payload, code);
+    }
+
+    @Override
+    public boolean verify(String code, String secret) {
+        if (code == null || secret == null)
+            return false;
+        int separator = secret.lastIndexOf(':');
+        int expiresEnd = secret.indexOf(':');
+        if (separator <= expiresEnd || expiresEnd <= 0)
+            return false;
+        String payload = secret.substring(0, separator);
+        long expires;
+        try {
+            expires = Long.parseLong(secret.substring(0, expiresEnd));
+        }
+        catch (NumberFormatException e) {
+            return false;
+        }
+        byte[] expected = sign(payload, code).getBytes(StandardCharsets.UTF_8);
+        byte[] actual = secret.substring(separator + 1)
+                .getBytes(StandardCharsets.UTF_8);
+        return MessageDigest.isEqual(expected, actual)
+                && expires > System.currentTimeMillis()
+                && used.putIfAbsent(payload, expires) == null;
+    }
+
+    /**
+     * Метод sweep
+     * Метод забывает использованные токены, срок действия которых истёк
+     */
+    @Scheduled(fixedDelayString = "${captcha.sweepDelay:600000}")
+    public void sweep() {
+        long now = System.currentTimeMillis();
+        used.values().removeIf(expires -> expires <= now);
+    }
+
+    private String sign(String payload, String code) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            byte[] signature = mac.doFinal((payload + ":" +
+                    code.toLowerCase(Locale.ROOT))
+                    .getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString(signature);
+        }
+        catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
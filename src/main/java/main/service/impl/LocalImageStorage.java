@@ -0,0 +1,94 @@
+package main.service.impl;
+
+import main.service.ImageStorage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Класс LocalImageStorage
+ * Изображения хранятся в локальной папке image.localPath под именем,
+ * равным SHA-256 содержимого, поэтому одинаковые файлы хранятся один раз.
+ * Файлы раскладываются по подпапкам из первых байтов хэша:
+ * ab/cd/abcd....jpg. Включается настройкой image.storage: local
+ *
+ * @version 1.0
+ * @see main.controller.ImageController
+ */
+@Service
+@ConditionalOnProperty(name = "image.storage", havingValue = "local")
+public class LocalImageStorage implements ImageStorage {
+    public static final String URL_PREFIX = "/upload";
+    private static final Pattern SHARD = Pattern.compile("[0-9a-f]{2}");
+    private static final Pattern NAME =
+            Pattern.compile("([0-9a-f]{64})\\.(jpg|jpeg|png|gif)");
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Path root;
+
+    public LocalImageStorage(@Value("${image.localPath:upload}") String path) {
+        root = Paths.get(path).toAbsolutePath().normalize();
+    }
+
+    @Override
+    public String store(byte[] content, String extension) throws IOException {
+        String hash = sha256(content);
+        String name = hash + "." + extension.toLowerCase(Locale.ROOT);
+        if (!NAME.matcher(name).matches())
+            throw new IllegalArgumentException(
+                    "Unsupported image extension: " + extension);
+        String shard = hash.substring(0, 2) + "/" + hash.substring(2, 4);
+        Path directory = root.resolve(shard);
+        Path file = directory.resolve(name);
+        if (!Files.exists(file)) {
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, hash, ".tmp");
+            try {
+                Files.write(temp, content);
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+            }
+            finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+        return URL_PREFIX + "/" + shard + "/" + name;
+    }
+
+    /**
+     * Метод find
+     * Метод возвращает файл изображения по частям его URL
+     *
+     * @return путь к файлу или null, если имя неверное или файла нет
+     */
+    public Path find(String first, String second, String name) {
+        if (!SHARD.matcher(first).matches() || !SHARD.matcher(second).matches()
+                || !NAME.matcher(name).matches()
+                || !name.startsWith(first + second))
+            return null;
+        Path file = root.resolve(first).resolve(second).resolve(name);
+        return Files.isRegularFile(file) ? file : null;
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(content);
+            char[] hex = new char[digest.length * 2];
+            for (int i = 0; i < digest.length; i++) {
+                hex[i * 2] = HEX[(digest[i] >> 4) & 0xF];
+                hex[i * 2 + 1] = HEX[digest[i] & 0xF];
+            }
+            return new String(hex);
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
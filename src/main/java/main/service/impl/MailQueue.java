@@ -0,0 +1,207 @@
+package main.service.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import main.model.QueuedMail;
+import main.repository.QueuedMailRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Класс MailQueue
+ * Очередь исходящих писем в таблице mail_queue. Запрос только ставит
+ * письмо в очередь, а фоновая отправка раз в mail.sendDelay забирает
+ * пачки по mail.batchSize писем и отправляет каждую пачку через одно
+ * SMTP-соединение. Неотправленное письмо откладывается с удвоением
+ * задержки от mail.retryDelay до mail.maxRetryDelay, после
+ * mail.maxAttempts попыток удаляется. Хост и порт SMTP задаются
+ * spring.mail.*, поэтому для проверки достаточно локального SMTP-сервера.
+ * Отправка идёт в собственном потоке, а не в общем планировщике задач:
+ * зависший SMTP-сервер не задерживает остальные периодические задачи.
+ * Пачка сначала забирается в БД на mail.claimTimeout, поэтому несколько
+ * экземпляров приложения не отправляют одно письмо дважды. Длина очереди
+ * считается при старте и дальше ведётся по поставленным, отправленным и
+ * удалённым письмам этого экземпляра
+ *
+ * @version 1.3
+ */
+@Service
+public class MailQueue {
+    private static final Logger log = LoggerFactory.getLogger(MailQueue.class);
+    private static final int ERROR_LENGTH = 255;
+
+    private final QueuedMailRepository queuedMailRepository;
+    private final JavaMailSender javaMailSender;
+    private final long sendDelay;
+    private final int batchSize;
+    private final long claimTimeout;
+    private final long retryDelay;
+    private final long maxRetryDelay;
+    private final int maxAttempts;
+
+    private final AtomicLong pending = new AtomicLong();
+    private final Counter sent;
+    private final Counter retried;
+    private final Counter dropped;
+    private ScheduledExecutorService sender;
+
+    public MailQueue(QueuedMailRepository queuedMailRepository,
+                     JavaMailSender javaMailSender,
+                     @Value("${mail.sendDelay:2000}") long sendDelay,
+                     @Value("${mail.batchSize:50}") int batchSize,
+                     @Value("${mail.claimTimeout:600000}") long claimTimeout,
+                     @Value("${mail.retryDelay:30000}") long retryDelay,
+                     @Value("${mail.maxRetryDelay:3600000}") long maxRetryDelay,
+                     @Value("${mail.maxAttempts:10}") int maxAttempts,
+                     MeterRegistry meterRegistry) {
+        this.queuedMailRepository = queuedMailRepository;
+        this.javaMailSender = javaMailSender;
+        this.sendDelay = sendDelay;
+        this.batchSize = batchSize;
+        this.claimTimeout = claimTimeout;
+        this.retryDelay = retryDelay;
+        this.maxRetryDelay = maxRetryDelay;
+        this.maxAttempts = maxAttempts;
+        sent = meterRegistry.counter("mail.messages", "result", "sent");
+        retried = meterRegistry.counter("mail.messages", "result", "retried");
+        dropped = meterRegistry.counter("mail.messages", "result", "dropped");
+        Gauge.builder("mail.queue.depth", pending, AtomicLong::get)
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        pending.set(queuedMailRepository.count());
+        sender = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "mail-sender");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sender.scheduleWithFixedDelay(() -> {
+            // исключение отменило бы все следующие запуски
+            try {
+                send();
+            }
+            catch (RuntimeException e) {
+                log.error("Mail queue send failed", e);
+            }
+        }, sendDelay, sendDelay, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        sender.shutdownNow();
+    }
+
+    /**
+     * Метод enqueue
+     * Метод ставит письмо в очередь на отправку
+     *
+     * @param to      адрес получателя
+     * @param subject тема
+     * @param text    текст письма
+     */
+    public void enqueue(String to, String subject, String text) {
+        QueuedMail mail = new QueuedMail();
+        mail.setRecipient(to);
+        mail.setSubject(subject);
+        mail.setText(text);
+        mail.setNextAttempt(new Date());
+        queuedMailRepository.save(mail);
+        pending.incrementAndGet();
+    }
+
+    /**
+     * Метод send
+     * Метод отправляет письма, время отправки которых наступило.
+     * Запускается в потоке mail-sender через mail.sendDelay после
+     * завершения предыдущего запуска
+     */
+    public void send() {
+        int claimed;
+        do {
+            String claim = UUID.randomUUID().toString();
+            long now = System.currentTimeMillis();
+            claimed = queuedMailRepository.claimDue(claim, new Date(now),
+                    new Date(now + claimTimeout), batchSize);
+            if (claimed > 0)
+                send(queuedMailRepository.findClaimed(claim));
+        } while (claimed == batchSize);
+    }
+
+    private void send(List<QueuedMail> batch) {
+        SimpleMailMessage[] messages = new SimpleMailMessage[batch.size()];
+        for (int i = 0; i < messages.length; i++) {
+            QueuedMail mail = batch.get(i);
+            messages[i] = new SimpleMailMessage();
+            messages[i].setTo(mail.getRecipient());
+            messages[i].setSubject(mail.getSubject());
+            messages[i].setText(mail.getText());
+        }
+        Map<Object, Exception> failures = Collections.emptyMap();
+        MailException batchFailure = null;
+        try {
+            javaMailSender.send(messages);
+        }
+        catch (MailSendException e) {
+            failures = e.getFailedMessages();
+            if (failures.isEmpty())
+                batchFailure = e;
+        }
+        catch (MailException e) {
+            batchFailure = e;
+        }
+
+        List<Integer> sentIds = new ArrayList<>();
+        for (int i = 0; i < messages.length; i++) {
+            Exception failure = batchFailure != null ? batchFailure
+                    : failures.get(messages[i]);
+            if (failure == null)
+                sentIds.add(batch.get(i).getId());
+            else
+                retry(batch.get(i), failure);
+        }
+        if (!sentIds.isEmpty()) {
+            queuedMailRepository.deleteSent(sentIds);
+            sent.increment(sentIds.size());
+            pending.addAndGet(-sentIds.size());
+        }
+    }
+
+    private void retry(QueuedMail mail, Exception failure) {
+        int attempts = mail.getAttempts() + 1;
+        if (attempts >= maxAttempts) {
+            log.error("Dropping mail {} to {} after {} attempts",
+                    mail.getId(), mail.getRecipient(), attempts, failure);
+            queuedMailRepository.deleteById(mail.getId());
+            dropped.increment();
+            pending.decrementAndGet();
+            return;
+        }
+        long delay = Math.min(maxRetryDelay,
+                retryDelay << Math.min(attempts - 1, 20));
+        String error = String.valueOf(failure.getMessage());
+        if (error.length() > ERROR_LENGTH)
+            error = error.substring(0, ERROR_LENGTH);
+        log.warn("Mail {} to {} failed, retry in {} ms: {}",
+                mail.getId(), mail.getRecipient(), delay, error);
+        queuedMailRepository.postpone(mail.getId(),
+                new Date(System.currentTimeMillis() + delay), error);
+        retried.increment();
+    }
+}
@@ -0,0 +1,126 @@
+package main.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import main.model.helper.PostChangedEvent;
+import main.model.helper.PostTimeView;
+import main.repository.PostRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+
+/**
+ * Класс PostCalendar
+ * Календарь публикаций в памяти: количество опубликованных постов по дням.
+ * Строится при старте приложения, обновляется по PostChangedEvent и
+ * перестраивается по БД вместе с остальными структурами
+ *
+ * @version 1.2
+ * @see Rebuilder
+ */
+@Service
+@RequiredArgsConstructor
+public class PostCalendar {
+    private final PostRepository postRepository;
+
+    private final Rebuilder<Days, PostChangedEvent> calendar =
+            new Rebuilder<>(new Days(), Days::apply);
+
+    /**
+     * Метод build
+     * Метод строит календарь по БД при старте приложения и при
+     * периодическом перестроении
+     *
+     * @return true, если календарь изменился
+     * @see PostCounterReconciler
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public boolean build() {
+        return calendar.rebuild(() -> {
+            Days loaded = new Days();
+            for (PostTimeView post : postRepository.findPublishedPostTimes())
+                loaded.add(post.getId(), post.getTime());
+            return loaded;
+        });
+    }
+
+    @EventListener
+    public void onPostChanged(PostChangedEvent event) {
+        calendar.change(event);
+    }
+
+    /**
+     * Метод getYears
+     * Метод возвращает годы, в которые были публикации
+     */
+    public Set<Integer> getYears() {
+        return calendar.read(built -> {
+            Set<Integer> years = new TreeSet<>();
+            LocalDate day = built.days.isEmpty() ? null : built.days.firstKey();
+            while (day != null) {
+                years.add(day.getYear());
+                day = built.days.ceilingKey(
+                        LocalDate.of(day.getYear() + 1, 1, 1));
+            }
+            return years;
+        });
+    }
+
+    /**
+     * Метод getDays
+     * Метод возвращает количество публикаций по дням года
+     *
+     * @param year год
+     * @return дата в формате "2019-10-15" -> количество постов
+     */
+    public Map<String, Integer> getDays(int year) {
+        return calendar.read(built -> {
+            Map<String, Integer> posts = new LinkedHashMap<>();
+            for (Map.Entry<LocalDate, Integer> entry : built.days.subMap(
+                    LocalDate.of(year, 1, 1), LocalDate.of(year + 1, 1, 1))
+                    .entrySet())
+                posts.put(entry.getKey().toString(), entry.getValue());
+            return posts;
+        });
+    }
+
+    // календарь: равны календари с одинаковыми днями публикации постов
+    private static class Days {
+        private final NavigableMap<LocalDate, Integer> days = new TreeMap<>();
+        private final Map<Integer, LocalDate> postDays = new HashMap<>();
+
+        private void apply(PostChangedEvent event) {
+            remove(event.getPostId());
+            if (event.isPublished())
+                add(event.getPostId(), event.getTime());
+        }
+
+        private void add(int postId, Date time) {
+            LocalDate day = Instant.ofEpochMilli(time.getTime())
+                    .atZone(ZoneId.systemDefault()).toLocalDate();
+            postDays.put(postId, day);
+            days.merge(day, 1, Integer::sum);
+        }
+
+        private void remove(int postId) {
+            LocalDate day = postDays.remove(postId);
+            if (day != null && days.merge(day, -1, Integer::sum) == 0)
+                days.remove(day);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return this == o || o instanceof Days
+                    && postDays.equals(((Days) o).postDays);
+        }
+
+        @Override
+        public int hashCode() {
+            return postDays.hashCode();
+        }
+    }
+}
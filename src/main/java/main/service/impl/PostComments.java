@@ -0,0 +1,134 @@
+package main.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import main.model.response.ids.CommentResponse;
+import main.model.response.ids.IdNamePhotoResp;
+import main.model.response.others.CommentsResponse;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Класс PostComments
+ * Запись и чтение комментариев постов напрямую через JDBC: комментарий
+ * добавляется одной вставкой строки без загрузки поста и его комментариев,
+ * а читаются комментарии по id вместе с авторами одним запросом: все
+ * сразу для страницы поста или страницами для /api/post/{id}/comments
+ *
+ * @version 1.1
+ */
+@Service
+@RequiredArgsConstructor
+public class PostComments {
+    // наибольшая страница комментариев
+    public static final int MAX_PAGE = 50;
+    private static final String SELECT = "select post_comments.id, " +
+            "parent_id, time, text, users.id as user_id, users.name, " +
+            "users.photo from post_comments " +
+            "join users on users.id = post_comments.user_id " +
+            "where post_id = ? and post_comments.id > ? ";
+    private static final String ORDER = "order by post_comments.id limit ?";
+    private static final RowMapper<CommentResponse> COMMENT = (rs, row) -> {
+        CommentResponse comment = new CommentResponse();
+        comment.setId(rs.getInt("id"));
+        comment.setParentId(rs.getInt("parent_id"));
+        comment.setTimestamp(rs.getTimestamp("time").getTime() / 1000);
+        comment.setText(rs.getString("text"));
+        IdNamePhotoResp user = new IdNamePhotoResp();
+        user.setId(rs.getInt("user_id"));
+        user.setName(rs.getString("name"));
+        user.setPhoto(rs.getString("photo"));
+        comment.setUser(user);
+        return comment;
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Метод add
+     * Метод добавляет комментарий и возвращает его id
+     *
+     * @param parentId id родительского комментария, 0 - комментарий к посту
+     */
+    public int add(int postId, int parentId, int userId, String text) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        Timestamp time = new Timestamp(new Date().getTime());
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    "insert into post_comments (parent_id, text, time, " +
+                            "post_id, user_id) values (?, ?, ?, ?, ?)",
+                    Statement.RETURN_GENERATED_KEYS);
+            statement.setInt(1, parentId);
+            statement.setString(2, text);
+            statement.setTimestamp(3, time);
+            statement.setInt(4, postId);
+            statement.setInt(5, userId);
+            return statement;
+        }, keyHolder);
+        return keyHolder.getKey().intValue();
+    }
+
+    /**
+     * Метод exists
+     * Метод проверяет, что комментарий есть и относится к посту
+     */
+    public boolean exists(int postId, int commentId) {
+        Integer count = jdbcTemplate.queryForObject("select count(*) from " +
+                        "post_comments where id = ? and post_id = ?",
+                Integer.class, commentId, postId);
+        return count != null && count > 0;
+    }
+
+    /**
+     * Метод getAll
+     * Метод возвращает все комментарии поста в порядке добавления
+     */
+    public List<CommentResponse> getAll(int postId) {
+        return jdbcTemplate.query(SELECT + "order by post_comments.id",
+                COMMENT, postId, 0);
+    }
+
+    /**
+     * Метод getPage
+     * Метод возвращает страницу комментариев поста в порядке добавления и
+     * курсор следующей страницы, если страница полная
+     *
+     * @param parentId null - все комментарии поста, 0 - комментарии к
+     *                 посту, иначе - ответы на комментарий parentId
+     * @param afterId  id последнего комментария предыдущей страницы, 0 -
+     *                 первая страница
+     */
+    public CommentsResponse getPage(int postId, Integer parentId,
+                                    int afterId, int limit) {
+        List<Object> args = new ArrayList<>();
+        args.add(postId);
+        args.add(afterId);
+        String sql = SELECT;
+        if (parentId == null)
+            sql += ORDER;
+        else if (parentId == 0)
+            sql += "and (parent_id = 0 or parent_id is null) " + ORDER;
+        else {
+            sql += "and parent_id = ? " + ORDER;
+            args.add(parentId);
+        }
+        args.add(limit);
+        List<CommentResponse> comments =
+                jdbcTemplate.query(sql, COMMENT, args.toArray());
+        CommentsResponse response = new CommentsResponse();
+        response.setComments(comments);
+        if (comments.size() == limit)
+            response.setNextCursor(String.valueOf(
+                    comments.get(limit - 1).getId()));
+        return response;
+    }
+}
@@ -0,0 +1,84 @@
+package main.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import main.repository.PostRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Класс PostCounterReconciler
+ * Периодически сверяет счётчики лайков, дизлайков и комментариев в таблице
+ * posts с таблицами post_votes и post_comments и перестраивает по БД
+ * структуры в памяти, построенные по опубликованным постам. Счётчики
+ * сверяются диапазонами id по counters.reconcileBatch постов, каждый
+ * диапазон - в своей транзакции
+ *
+ * @version 1.3
+ */
+@Service
+@RequiredArgsConstructor
+public class PostCounterReconciler {
+    private static final Logger log =
+            LoggerFactory.getLogger(PostCounterReconciler.class);
+
+    private final PostRepository postRepository;
+    private final PostStatistics postStatistics;
+    private final SearchIndex searchIndex;
+    private final TagCloud tagCloud;
+    private final PostCalendar postCalendar;
+    private final PostViewCache postViewCache;
+    private final ContentVersions contentVersions;
+
+    @Value("${counters.reconcileBatch:500}")
+    private int batchSize;
+
+    /**
+     * Метод reconcile
+     * Метод пересчитывает счётчики всех постов. Запускается по расписанию
+     * counters.reconcileCron, по умолчанию - ежедневно в 4 часа ночи.
+     * После сверки очищается кэш страниц постов и перестраиваются
+     * структуры в памяти
+     */
+    @Scheduled(cron = "${counters.reconcileCron:0 0 4 * * *}")
+    public void reconcile() {
+        int updated = 0;
+        Integer maxId = postRepository.findMaxId();
+        if (maxId != null)
+            for (int from = 0; from <= maxId; from += batchSize)
+                updated += postRepository.reconcileCounters(from,
+                        from + batchSize);
+        log.info("Post counters reconciled, rows updated: {}", updated);
+        postViewCache.invalidateAll();
+        if (rebuild() || updated > 0)
+            contentVersions.allUpdated();
+    }
+
+    /**
+     * Метод refresh
+     * Метод перестраивает по БД статистику, поисковый индекс, облако тэгов
+     * и календарь. События об изменении постов приходят только от этого
+     * экземпляра приложения, поэтому посты, изменённые другими
+     * экземплярами, попадают в структуры в памяти при перестроении.
+     * Запускается по расписанию
+     * counters.refreshDelay. Версии содержимого меняются, только если
+     * перестроение что-то изменило
+     */
+    @Scheduled(fixedDelayString = "${counters.refreshDelay:600000}",
+            initialDelayString = "${counters.refreshDelay:600000}")
+    public void refresh() {
+        if (rebuild())
+            contentVersions.allUpdated();
+    }
+
+    // перестраивает все структуры; true, если хотя бы одна изменилась
+    private boolean rebuild() {
+        boolean changed = postStatistics.rebuild();
+        changed |= searchIndex.build();
+        changed |= tagCloud.build();
+        changed |= postCalendar.build();
+        return changed;
+    }
+}
@@ -0,0 +1,41 @@
+package main.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import main.model.Post;
+import main.model.helper.PostChangedEvent;
+import main.repository.PostRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Класс PostPublicationWatcher
+ * Посты с отложенной публикацией становятся доступны без изменения в БД.
+ * Класс периодически находит посты, время публикации которых наступило, и
+ * рассылает по ним PostChangedEvent
+ *
+ * @version 1.0
+ */
+@Service
+@RequiredArgsConstructor
+public class PostPublicationWatcher {
+    private final PostRepository postRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private Date lastCheck = new Date();
+
+    @Scheduled(fixedDelayString = "${posts.publicationCheckDelay:60000}")
+    @Transactional(readOnly = true)
+    public void publishDuePosts() {
+        Date now = new Date();
+        List<Post> posts =
+                postRepository.findPostsPublishedBetween(lastCheck, now);
+        for (Post post : posts)
+            eventPublisher.publishEvent(PostChangedEvent.of(post));
+        lastCheck = now;
+    }
+}
@@ -1,49 +1,68 @@
 package main.service.impl;
 
 import lombok.RequiredArgsConstructor;
-import main.config.AuthConfiguration;
 import main.model.response.results.Error;
+import main.service.AnnounceExtractor;
 import main.service.PostResponseMapper;
 import main.model.Post;
 import main.model.PostVote;
-import main.model.Tag;
-import main.model.User;
+import main.model.helper.OffsetPageable;
+import main.model.helper.PostChangedEvent;
+import main.model.helper.PostCursor;
+import main.model.helper.PostPreviewView;
 import main.model.helper.PostStatus;
+import main.model.helper.UserPrincipal;
 import main.repository.*;
 import main.model.request.others.PostRequest;
 import main.model.request.postids.PostIdRequest;
 import main.model.response.ids.PostPreview;
+import main.model.response.ids.PostResponse;
+import main.model.response.others.CommentsResponse;
 import main.model.response.others.ThePosts;
 import main.model.response.others.TitleTextResponse;
 import main.model.response.results.ResultResponse;
 import main.service.PostService;
 import org.mapstruct.factory.Mappers;
-import org.springframework.data.domain.Page;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
-import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
 
-import javax.persistence.EntityNotFoundException;
 import java.util.*;
+import java.util.function.Function;
 
 /**
  * Класс PostServiceImpl
  * Сервисный слой для работы с постами
  *
- * @version 1.2
+ * @version 1.3
  */
 @Service
 @RequiredArgsConstructor
 public class PostServiceImpl implements PostService {
+    private static final Function<PostPreviewView, PostCursor> TIME_KEY =
+            post -> new PostCursor(post.getTime().getTime(), post.getId());
+
     private final PostRepository postRepository;
     private final UserRepository userRepository;
-    private final TagRepository tagRepository;
+    private final TagDictionary tagDictionary;
+    private final PostTags postTags;
     private final PostVoteRepository postVoteRepository;
-    private final GlobalSettingsRepository globalSettingsRepository;
-    private final AuthConfiguration authConfiguration;
+    private final BlogSettingsCache blogSettingsCache;
+    private final CurrentPrincipal currentPrincipal;
+    private final PostViewCounter postViewCounter;
+    private final PostComments postComments;
+    private final PostViewCache postViewCache;
+    private final ContentVersions contentVersions;
+    private final SearchIndex searchIndex;
+    private final PostStatistics postStatistics;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Метод getListOfPostResponse
@@ -52,66 +71,92 @@ public class PostServiceImpl implements PostService {
      * @param offset сдвиг от 0 для постраничного вывода
      * @param limit количество постов, которое надо вывести
      * @param mode режим вывода (сортировка): recent, popular, best или early
+     * @param cursor курсор следующей страницы, null - вывод по offset
      */
     @Override
     public ThePosts getListOfPostResponse
-            (int offset, int limit, String mode) {
-        List<PostPreview> posts = new ArrayList<>();
-        PostResponseMapper mapper = Mappers.getMapper(PostResponseMapper.class);
-        Pageable pageable = PageRequest.of(offset/10, limit);
-        Page<Post> postPage;
+            (int offset, int limit, String mode, String cursor) {
+        Pageable pageable = getPageable(offset, limit, cursor);
+        PostCursor position;
+        List<PostPreviewView> postList;
+        Function<PostPreviewView, PostCursor> keyOf;
         switch (mode) {
             case "best":
-                postPage = postRepository.
-                        findPostsSortedByLikesCount(pageable);
+                position = getCursor(cursor, PostCursor.firstDescending(false));
+                postList = postRepository.findPostsSortedByLikesCount(
+                        position.getScore(), position.getId(), pageable);
+                keyOf = post -> new PostCursor(
+                        post.getLikeCount(), post.getId());
                 break;
             case "popular":
-                postPage = postRepository.
-                        findPostsSortedByCommentsCount(pageable);
+                position = getCursor(cursor, PostCursor.firstDescending(false));
+                postList = postRepository.findPostsSortedByCommentsCount(
+                        position.getScore(), position.getId(), pageable);
+                keyOf = post -> new PostCursor(
+                        post.getCommentCount(), post.getId());
                 break;
             case "early":
-                postPage = postRepository.
-                        findEarlyPosts(pageable);
+                position = getCursor(cursor, PostCursor.firstAscending());
+                postList = postRepository.findEarlyPosts(
+                        position.getTime(), position.getId(), pageable);
+                keyOf = TIME_KEY;
                 break;
             default:
-                postPage = postRepository.
-                        findRecentPosts(pageable);
+                position = getCursor(cursor, PostCursor.firstDescending(true));
+                postList = postRepository.findRecentPosts(
+                        position.getTime(), position.getId(), pageable);
+                keyOf = TIME_KEY;
         }
-        for (Post post : postPage) {
-            PostPreview postForFeed = mapper.postToPostPreview(post);
-            posts.add(postForFeed);
-        }
-        ThePosts response = new ThePosts();
-        response.setCount(postRepository.findCountOfPosts());
-        response.setPosts(posts);
-        return response;
+        return getThePosts(postList, postRepository.findCountOfPosts(),
+                pageable, cursor, keyOf);
     }
 
     /**
      * Метод searchForPostResponse
-     * Метод возвращает посты, соответствующие поисковому запросу - строке query
+     * Метод возвращает посты, соответствующие поисковому запросу - строке query,
+     * по убыванию релевантности. Поиск выполняется по индексу в памяти,
+     * пустой запрос выводит все посты как в режиме recent
      *
      * @param offset сдвиг от 0 для постраничного вывода
      * @param limit количество постов, которое надо вывести
      * @param query поисковый запрос
+     * @param cursor курсор следующей страницы, null - вывод по offset
      */
     @Override
     public ThePosts searchForPostResponse
-            (int offset, int limit, String query) {
-        ThePosts response = new ThePosts();
-        List<PostPreview> posts = new ArrayList<>();
-        PostResponseMapper mapper = Mappers.getMapper
-                (PostResponseMapper.class);
-        Pageable pageable = PageRequest.of(offset/10, limit);
-        List<Post> postList = postRepository.
-                searchForPostsByQuery(query, pageable);
-        for (Post post : postList) {
-            PostPreview postDTO = mapper.postToPostPreview(post);
-            posts.add(postDTO);
+            (int offset, int limit, String query, String cursor) {
+        if (query == null || query.trim().isEmpty())
+            return getListOfPostResponse(offset, limit, "recent", cursor);
+        Pageable pageable = getPageable(offset, limit, cursor);
+        List<SearchIndex.Hit> hits = searchIndex.search(query);
+        int from = (int) Math.min(pageable.getOffset(), hits.size());
+        PostCursor position = getCursor(cursor, null);
+        if (position != null) {
+            double score = Double.longBitsToDouble(position.getValue());
+            from = 0;
+            while (from < hits.size() && !isAfter(
+                    hits.get(from), score, position.getId()))
+                from++;
         }
-        response.setCount(postRepository.getCountOfPostsByQuery(query));
-        response.setPosts(posts);
-        return response;
+        List<SearchIndex.Hit> page = hits.subList(from,
+                Math.min(from + pageable.getPageSize(), hits.size()));
+
+        Map<Integer, Double> scores = new HashMap<>();
+        for (SearchIndex.Hit hit : page)
+            scores.put(hit.getPostId(), hit.getScore());
+        List<PostPreviewView> postList = new ArrayList<>();
+        if (!page.isEmpty()) {
+            Map<Integer, PostPreviewView> previews = new HashMap<>();
+            for (PostPreviewView post :
+                    postRepository.findPreviewsByIds(scores.keySet()))
+                previews.put(post.getId(), post);
+            for (SearchIndex.Hit hit : page)
+                if (previews.containsKey(hit.getPostId()))
+                    postList.add(previews.get(hit.getPostId()));
+        }
+        return getThePosts(postList, hits.size(), pageable, cursor,
+                post -> new PostCursor(Double.doubleToLongBits(
+                        scores.get(post.getId())), post.getId()));
     }
 
     /**
@@ -121,24 +166,20 @@ public class PostServiceImpl implements PostService {
      * @param offset сдвиг от 0 для постраничного вывода
      * @param limit количество постов, которое надо вывести
      * @param date дата в формате "2019-10-15"
+     * @param cursor курсор следующей страницы, null - вывод по offset
      */
     @Override
     public ThePosts getPostsByDate
-            (int offset, int limit, String date) {
-        ThePosts response = new ThePosts();
-        List<PostPreview> posts = new ArrayList<>();
-        PostResponseMapper mapper = Mappers.getMapper(PostResponseMapper.class);
-        Pageable pageable = PageRequest.of(offset/10, limit);
-        List<Post> postList = postRepository.
-                getPostsByDate(dateBefore(date), dateAfter(date), pageable);
-        for (Post post : postList) {
-            PostPreview postDTO = mapper.postToPostPreview(post);
-            posts.add(postDTO);
-        }
-        response.setCount(postRepository
-                .getCountOfPostsByDate(dateBefore(date), dateAfter(date)));
-        response.setPosts(posts);
-        return response;
+            (int offset, int limit, String date, String cursor) {
+        Pageable pageable = getPageable(offset, limit, cursor);
+        PostCursor position =
+                getCursor(cursor, PostCursor.firstDescending(true));
+        List<PostPreviewView> postList = postRepository.getPostsByDate(
+                dateBefore(date), dateAfter(date),
+                position.getTime(), position.getId(), pageable);
+        return getThePosts(postList, postRepository
+                        .getCountOfPostsByDate(dateBefore(date), dateAfter(date)),
+                pageable, cursor, TIME_KEY);
     }
 
     /**
@@ -148,22 +189,18 @@ public class PostServiceImpl implements PostService {
      * @param offset сдвиг от 0 для постраничного вывода
      * @param limit количество постов, которое надо вывести
      * @param tag тэг, по которому нужно вывести все посты
+     * @param cursor курсор следующей страницы, null - вывод по offset
      */
     @Override
     public ThePosts getPostsByTag
-            (int offset, int limit, String tag) {
-        ThePosts response = new ThePosts();
-        List<PostPreview> posts = new ArrayList<>();
-        PostResponseMapper mapper = Mappers.getMapper(PostResponseMapper.class);
-        Pageable pageable = PageRequest.of(offset/10, limit);
-        List<Post> postList = postRepository.getPostsByTag(tag, pageable);
-        for (Post post : postList) {
-            PostPreview postDTO = mapper.postToPostPreview(post);
-            posts.add(postDTO);
-        }
-        response.setCount(postRepository.getCountOfPostsByTag(tag));
-        response.setPosts(posts);
-        return response;
+            (int offset, int limit, String tag, String cursor) {
+        Pageable pageable = getPageable(offset, limit, cursor);
+        PostCursor position =
+                getCursor(cursor, PostCursor.firstDescending(true));
+        List<PostPreviewView> postList = postRepository.getPostsByTag(
+                tag, position.getTime(), position.getId(), pageable);
+        return getThePosts(postList, postRepository.getCountOfPostsByTag(tag),
+                pageable, cursor, TIME_KEY);
     }
 
     /**
@@ -173,41 +210,36 @@ public class PostServiceImpl implements PostService {
      * @param offset сдвиг от 0 для постраничного вывода
      * @param limit количество постов, которое надо вывести
      * @param status статус модерации: new, declined или accepted
+     * @param cursor курсор следующей страницы, null - вывод по offset
      */
     @Override
     public ThePosts getPostsForModeration
-            (int offset, int limit, String status) {
-        ThePosts response = new ThePosts();
-        List<PostPreview> posts = new ArrayList<>();
-        PostResponseMapper mapper = Mappers.getMapper(PostResponseMapper.class);
-        Pageable pageable = PageRequest.of(offset/10, limit);
-        List<Post> postList;
+            (int offset, int limit, String status, String cursor) {
+        Pageable pageable = getPageable(offset, limit, cursor);
+        PostCursor position =
+                getCursor(cursor, PostCursor.firstDescending(true));
+        PostStatus postStatus;
         int count;
 
-        String currentSession = RequestContextHolder
-                .currentRequestAttributes().getSessionId();
-        int id = authConfiguration.getAuths().get(currentSession);
+        int id = currentPrincipal.getId();
 
         switch (status) {
             case "new":
-                postList = postRepository.getNewPosts(id, pageable);
+                postStatus = PostStatus.NEW;
                 count = postRepository.getCountOfNewPosts(id);
                 break;
             case "declined":
-                postList = postRepository.getDeclinedPosts(id, pageable);
+                postStatus = PostStatus.DECLINED;
                 count = postRepository.getCountOfDeclinedPosts(id);
                 break;
             default:
-                postList = postRepository.getAcceptedPosts(id, pageable);
+                postStatus = PostStatus.ACCEPTED;
                 count = postRepository.getCountOfAcceptedPosts(id);
         }
-        for (Post post : postList) {
-            PostPreview postResponse = mapper.postToPostPreview(post);
-            posts.add(postResponse);
-        }
-        response.setCount(count);
-        response.setPosts(posts);
-        return response;
+        List<PostPreviewView> postList = postRepository.getPostsForModeration(
+                postStatus.name(), id,
+                position.getTime(), position.getId(), pageable);
+        return getThePosts(postList, count, pageable, cursor, TIME_KEY);
     }
 
     /**
@@ -218,46 +250,44 @@ public class PostServiceImpl implements PostService {
      * @param limit количество постов, которое надо вывести
      * @param status статус модерации: inactive, pending, declined или
      *               published
+     * @param cursor курсор следующей страницы, null - вывод по offset
      */
     @Override
     public ThePosts getMyPosts
-            (int offset, int limit, String status) {
-        ThePosts response = new ThePosts();
-        List<PostPreview> posts = new ArrayList<>();
-        PostResponseMapper mapper = Mappers.getMapper
-                (PostResponseMapper.class);
-        Pageable pageable = PageRequest.of(offset/10, limit);
-        List<Post> postList;
+            (int offset, int limit, String status, String cursor) {
+        Pageable pageable = getPageable(offset, limit, cursor);
+        PostCursor position =
+                getCursor(cursor, PostCursor.firstDescending(true));
+        Date time = position.getTime();
+        List<PostPreviewView> postList;
         int count;
 
-        String currentSession = RequestContextHolder
-                .currentRequestAttributes().getSessionId();
-        int id = authConfiguration.getAuths().get(currentSession);
+        int id = currentPrincipal.getId();
 
         switch (status) {
             case "inactive":
-                postList = postRepository.getMyInactivePosts(id, pageable);
+                postList = postRepository.getMyInactivePosts(
+                        id, time, position.getId(), pageable);
                 count = postRepository.getCountOfMyInactivePosts(id);
                 break;
             case "pending":
-                postList = postRepository.getMyPendingPosts(id, pageable);
+                postList = postRepository.getMyActivePosts(id,
+                        PostStatus.NEW.name(), time, position.getId(), pageable);
                 count = postRepository.getCountOfMyPendingPosts(id);
                 break;
             case "declined":
-                postList = postRepository.getMyDeclinedPosts(id, pageable);
+                postList = postRepository.getMyActivePosts(id,
+                        PostStatus.DECLINED.name(), time, position.getId(),
+                        pageable);
                 count = postRepository.getCountOfMyDeclinedPosts(id);
                 break;
             default:
-                postList = postRepository.getMyPublishedPosts(id, pageable);
+                postList = postRepository.getMyActivePosts(id,
+                        PostStatus.ACCEPTED.name(), time, position.getId(),
+                        pageable);
                 count = postRepository.getCountOfMyPublishedPosts(id);
         }
-        for (Post post : postList) {
-            PostPreview postResponse = mapper.postToPostPreview(post);
-            posts.add(postResponse);
-        }
-        response.setCount(count);
-        response.setPosts(posts);
-        return response;
+        return getThePosts(postList, count, pageable, cursor, TIME_KEY);
     }
 
     /**
@@ -268,43 +298,75 @@ public class PostServiceImpl implements PostService {
      */
     @Override
     public Object getPost(int id) {
-        try {
-            Post post = postRepository.getOne(id);
-            PostResponseMapper mapper = Mappers
-                    .getMapper(PostResponseMapper.class);
-            post.setViewCount(checkViewCount(post));
-            postRepository.saveAndFlush(post);
-            return mapper.postToPostResponse(post);
-        }
-        catch (EntityNotFoundException e) {
+        PostViewCache.CachedPost post = postViewCache.get(id);
+        if (post == null)
             return new ResponseEntity(HttpStatus.NOT_FOUND);
+        PostResponse response = Mappers.getMapper(PostResponseMapper.class)
+                .copy(post.getResponse());
+        if (isCountedView(post.getUserId()))
+            postViewCounter.increment(id);
+        // просмотры, записанные в БД после загрузки в кэш, плюс ещё не
+        // записанные
+        response.setViewCount((int) (response.getViewCount()
+                + post.getFlushedViews() + postViewCounter.getPending(id)));
+        return response;
+    }
+
+    /**
+     * Метод getComments
+     * Метод выводит страницу комментариев поста в порядке добавления
+     *
+     * @param parentId null - все комментарии, 0 - комментарии к посту,
+     *                 иначе - ответы на комментарий parentId
+     * @param cursor   курсор следующей страницы, null - первая страница
+     * @see PostComments
+     */
+    @Override
+    public CommentsResponse getComments(int id, Integer parentId,
+                                        String cursor, int limit) {
+        int afterId = 0;
+        if (cursor != null && !cursor.isEmpty()) {
+            try {
+                afterId = Integer.parseInt(cursor);
+            }
+            catch (NumberFormatException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Неверный курсор");
+            }
         }
+        return postComments.getPage(id, parentId, afterId,
+                Math.min(Math.max(limit, 1), PostComments.MAX_PAGE));
     }
 
     /**
      * Метод addPost
-     * Метод отправляет данные поста, которые пользователь ввёл в форму
+     * Метод отправляет данные поста, которые пользователь ввёл в форму.
+     * Пост, новые тэги и связи с тэгами сохраняются в одной транзакции,
+     * а кэши в памяти узнают о посте после её фиксации
      */
     @Override
+    @Transactional
     public Object addPost(PostRequest request) {
         Error error = checkPostData(request);
         if (!error.isResult())
             return error;
         if (request.getTimestamp() < (new Date()).getTime())
             request.setTimestamp((new Date()).getTime());
-        String currentSession = RequestContextHolder
-                .currentRequestAttributes().getSessionId();
-        int id = authConfiguration.getAuths().get(currentSession);
+        int id = currentPrincipal.getId();
         Post post = new Post();
         post.setUser(userRepository.getOne(id));
-        createNewPost(request, post);
-        if (globalSettingsRepository.postPremoderation().equals("YES"))
+        Map<Integer, String> tags = createNewPost(request, post);
+        if (blogSettingsCache.get().isPostPremoderation())
             post.setModerationStatus(PostStatus.NEW);
         else {
             post.setModerationStatus(PostStatus.ACCEPTED);
             post.setActive(true);
         }
         postRepository.saveAndFlush(post);
+        postTags.update(post.getId(), tags.keySet());
+        PostChangedEvent event = PostChangedEvent.of(post,
+                new HashSet<>(tags.values()));
+        afterCommit(() -> eventPublisher.publishEvent(event));
 
         ResultResponse response = new ResultResponse();
         response.setResult(true);
@@ -318,22 +380,23 @@ public class PostServiceImpl implements PostService {
      * @param id поста, который мы хотим изменить
      */
     @Override
+    @Transactional
     public Object editPost(int id, PostRequest request) {
         Error error = checkPostData(request);
         if (!error.isResult())
             return error;
         if (request.getTimestamp() < (new Date()).getTime())
             request.setTimestamp((new Date()).getTime());
-        String currentSession = RequestContextHolder
-                .currentRequestAttributes().getSessionId();
-        int userIdFromContext = authConfiguration
-                .getAuths().get(currentSession);
-        User user = userRepository.getOne(userIdFromContext);
+        int userIdFromContext = currentPrincipal.getId();
         Post post = postRepository.getOne(id);
-        createNewPost(request, post);
-        if (user.getId() == post.getUser().getId())
+        Map<Integer, String> tags = createNewPost(request, post);
+        if (userIdFromContext == post.getUser().getId())
             post.setModerationStatus(PostStatus.NEW);
         postRepository.saveAndFlush(post);
+        postTags.update(post.getId(), tags.keySet());
+        PostChangedEvent event = PostChangedEvent.of(post,
+                new HashSet<>(tags.values()));
+        afterCommit(() -> eventPublisher.publishEvent(event));
 
         ResultResponse response = new ResultResponse();
         response.setResult(true);
@@ -346,13 +409,12 @@ public class PostServiceImpl implements PostService {
      * пользователя
      */
     @Override
+    @Transactional
     public ResultResponse like(PostIdRequest request) {
-        String currentSession = RequestContextHolder
-                .currentRequestAttributes().getSessionId();
         ResultResponse response = new ResultResponse();
         response.setResult(false);
-        if (authConfiguration.getAuths().get(currentSession) != null) {
-            int userId = authConfiguration.getAuths().get(currentSession);
+        Integer userId = currentPrincipal.getId();
+        if (userId != null) {
             PostVote postVote = postVoteRepository
                     .getPostVoteByPostAndUser(request.getPostId(), userId);
             if (postVote == null) {
@@ -362,6 +424,8 @@ public class PostServiceImpl implements PostService {
                 newPostVote.setUser(userRepository.getOne(userId));
                 newPostVote.setValue(1);
                 postVoteRepository.saveAndFlush(newPostVote);
+                postRepository.updateVoteCounters(request.getPostId(), 1, 0);
+                onVoteCommitted(request.getPostId(), 1, 0);
                 response.setResult(true);
             } else {
                 if (postVote.getValue() == 1)
@@ -370,6 +434,9 @@ public class PostServiceImpl implements PostService {
                     postVote.setValue(1);
                     postVote.setTime(new Date());
                     postVoteRepository.saveAndFlush(postVote);
+                    postRepository.updateVoteCounters(
+                            request.getPostId(), 1, -1);
+                    onVoteCommitted(request.getPostId(), 1, -1);
                     response.setResult(true);
                 }
             }
@@ -384,13 +451,12 @@ public class PostServiceImpl implements PostService {
      */
 
     @Override
+    @Transactional
     public ResultResponse dislike(PostIdRequest request) {
-        String currentSession = RequestContextHolder
-                .currentRequestAttributes().getSessionId();
         ResultResponse response = new ResultResponse();
         response.setResult(false);
-        if (authConfiguration.getAuths().get(currentSession) != null) {
-            int userId = authConfiguration.getAuths().get(currentSession);
+        Integer userId = currentPrincipal.getId();
+        if (userId != null) {
             PostVote postVote = postVoteRepository
                     .getPostVoteByPostAndUser(request.getPostId(), userId);
             if (postVote == null) {
@@ -400,6 +466,8 @@ public class PostServiceImpl implements PostService {
                 newPostVote.setUser(userRepository.getOne(userId));
                 newPostVote.setValue(-1);
                 postVoteRepository.saveAndFlush(newPostVote);
+                postRepository.updateVoteCounters(request.getPostId(), 0, 1);
+                onVoteCommitted(request.getPostId(), 0, 1);
                 response.setResult(true);
             } else {
                 if (postVote.getValue() == -1)
@@ -408,6 +476,9 @@ public class PostServiceImpl implements PostService {
                     postVote.setValue(-1);
                     postVote.setTime(new Date());
                     postVoteRepository.saveAndFlush(postVote);
+                    postRepository.updateVoteCounters(
+                            request.getPostId(), -1, 1);
+                    onVoteCommitted(request.getPostId(), -1, 1);
                     response.setResult(true);
                 }
             }
@@ -415,6 +486,86 @@ public class PostServiceImpl implements PostService {
         return response;
     }
 
+    /**
+     * Метод onVoteCommitted
+     * Метод обновляет счётчики в памяти, сбрасывает кэш и меняет ETag поста
+     * после фиксации голоса: до неё другой запрос может снова закэшировать
+     * старые счётчики под новым ETag, а при откате счётчики в памяти
+     * разошлись бы с БД
+     */
+    private void onVoteCommitted(int postId, int likes, int dislikes) {
+        afterCommit(() -> {
+            postStatistics.onVote(postId, likes, dislikes);
+            postViewCache.invalidate(postId);
+            contentVersions.postUpdated(postId);
+        });
+    }
+
+    /**
+     * Метод afterCommit
+     * Метод выполняет действие после фиксации текущей транзакции
+     */
+    private static void afterCommit(Runnable action) {
+        TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronizationAdapter() {
+                    @Override
+                    public void afterCommit() {
+                        action.run();
+                    }
+                });
+    }
+
+    /**
+     * Метод getPageable
+     * Метод возвращает параметры вывода на страницу: при выводе по курсору
+     * всегда первую страницу выборки, иначе - выборку, начиная с offset
+     */
+    private Pageable getPageable(int offset, int limit, String cursor) {
+        int size = Math.max(limit, 1);
+        if (cursor != null)
+            return PageRequest.of(0, size);
+        return new OffsetPageable(Math.max(offset, 0), size);
+    }
+
+    private PostCursor getCursor(String cursor, PostCursor first) {
+        try {
+            PostCursor position = PostCursor.decode(cursor);
+            return position == null ? first : position;
+        }
+        catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Неверный курсор");
+        }
+    }
+
+    /**
+     * Метод getThePosts
+     * Метод готовит ответ со списком постов. При выводе по курсору и полной
+     * странице добавляет курсор следующей страницы
+     */
+    private ThePosts getThePosts(List<PostPreviewView> postList, int count,
+                                 Pageable pageable, String cursor,
+                                 Function<PostPreviewView, PostCursor> keyOf) {
+        PostResponseMapper mapper = Mappers.getMapper(PostResponseMapper.class);
+        List<PostPreview> posts = new ArrayList<>();
+        for (PostPreviewView post : postList)
+            posts.add(mapper.postToPostPreview(post));
+        ThePosts response = new ThePosts();
+        response.setCount(count);
+        response.setPosts(posts);
+        if (cursor != null && postList.size() == pageable.getPageSize()) {
+            PostPreviewView last = postList.get(postList.size() - 1);
+            response.setNextCursor(keyOf.apply(last).encode());
+        }
+        return response;
+    }
+
+    // пост поиска идёт после курсора: ниже по релевантности или с меньшим id
+    private boolean isAfter(SearchIndex.Hit hit, double score, int id) {
+        return hit.getScore() < score
+                || (hit.getScore() == score && hit.getPostId() < id);
+    }
+
     private String dateBefore(String date) {
         return date + " 00:00:00.000000";
     }
@@ -424,21 +575,16 @@ public class PostServiceImpl implements PostService {
                 (Integer.parseInt(date.substring(8, 10)) + 1) +
                 " 00:00:00.000000";
     }
-
-    private int checkViewCount(Post post) {
-        String currentSession = RequestContextHolder
-                .currentRequestAttributes().getSessionId();
-        try {
-            int id = authConfiguration.getAuths().get(currentSession);
-            if (userRepository.isAdmin(id) == 1)
-                return post.getViewCount();
-            if (post.getUser().getId() == id)
-                return post.getViewCount();
-            return post.getViewCount() + 1;
-        }
-        catch (NullPointerException e) {
-            return post.getViewCount() + 1;
-        }
+    /**
+     * Метод isCountedView
+     * Метод определяет, учитывается ли просмотр: просмотры модераторов и
+     * автора поста не учитываются
+     */
+    private boolean isCountedView(int authorId) {
+        UserPrincipal principal = currentPrincipal.get();
+        if (principal == null)
+            return true;
+        return !principal.isModerator() && authorId != principal.getId();
     }
 
     private Error checkPostData(PostRequest request) {
@@ -468,22 +614,22 @@ public class PostServiceImpl implements PostService {
         return response;
     }
 
-    private Post createNewPost(PostRequest request, Post post) {
+    /**
+     * Метод createNewPost
+     * Метод переносит данные из запроса в пост и возвращает тэги поста из
+     * словаря тэгов. Тэги записываются отдельно после сохранения поста
+     *
+     * @return id тэгов поста -> имена тэгов
+     * @see TagDictionary
+     * @see PostTags
+     */
+    private Map<Integer, String> createNewPost(PostRequest request,
+                                               Post post) {
         post.setActive(request.getActive() == 1);
         post.setTime(new Date(request.getTimestamp()));
         post.setTitle(request.getTitle());
         post.setText(request.getText());
-        List<String> namesOfCurrentTags = tagRepository.findNamesOfTags();
-        Set<Tag> newTags = new HashSet<>();
-        for (String nameOfTagFromRequest : request.getTags()) {
-            Tag newTag = new Tag();
-            if (namesOfCurrentTags.contains(nameOfTagFromRequest))
-                newTag = tagRepository.findTagByName(nameOfTagFromRequest);
-            else
-                newTag.setName(nameOfTagFromRequest);
-            newTags.add(newTag);
-        }
-        post.setTagSet(newTags);
-        return post;
+        post.setAnnounce(AnnounceExtractor.extract(request.getText()));
+        return tagDictionary.resolve(request.getTags());
     }
 }
\ No newline at end of file
@@ -0,0 +1,216 @@
+package main.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import main.model.helper.PostChangedEvent;
+import main.model.helper.PostStatsView;
+import main.model.response.others.StatisticsResponse;
+import main.repository.PostRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Класс PostStatistics
+ * Статистика опубликованных постов в памяти: по каждому автору и по блогу
+ * в целом. Обновляется по PostChangedEvent, при голосовании и при записи
+ * просмотров в БД. Полностью пересчитывается при старте приложения и
+ * вместе с остальными структурами. Голос или просмотры, записанные в БД в
+ * тот же момент, что и начало загрузки, могут быть учтены дважды до
+ * следующего пересчёта
+ *
+ * @version 1.2
+ * @see PostCounterReconciler
+ * @see Rebuilder
+ */
+@Service
+@RequiredArgsConstructor
+public class PostStatistics {
+    private final PostRepository postRepository;
+
+    private final Rebuilder<Stats, Consumer<Stats>> stats =
+            new Rebuilder<>(new Stats(), (state, change) -> change.accept(state));
+
+    /**
+     * Метод rebuild
+     * Метод пересчитывает статистику по таблице posts
+     *
+     * @return true, если статистика изменилась
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public boolean rebuild() {
+        return stats.rebuild(() -> {
+            Stats loaded = new Stats();
+            for (PostStatsView view : postRepository.findPublishedPostStats())
+                loaded.add(new PostStats(view));
+            return loaded;
+        });
+    }
+
+    @EventListener
+    public void onPostChanged(PostChangedEvent event) {
+        PostStatsView view = event.isPublished()
+                ? postRepository.findPostStats(event.getPostId()) : null;
+        stats.change(state -> state.replace(event.getPostId(), view));
+    }
+
+    /**
+     * Метод onVote
+     * Метод учитывает изменение лайков и дизлайков поста
+     */
+    public void onVote(int postId, int likes, int dislikes) {
+        stats.change(state -> state.update(postId, post -> {
+            post.likes += likes;
+            post.dislikes += dislikes;
+        }));
+    }
+
+    /**
+     * Метод onViews
+     * Метод учитывает просмотры поста, записанные в БД
+     */
+    public void onViews(int postId, long views) {
+        stats.change(state -> state.update(postId,
+                post -> post.views += views));
+    }
+
+    /**
+     * Метод getUserStatistics
+     * Метод возвращает статистику постов автора
+     *
+     * @param userId id автора
+     */
+    public StatisticsResponse getUserStatistics(int userId) {
+        return stats.read(state -> {
+            Rollup rollup = state.users.get(userId);
+            return (rollup == null ? new Rollup() : rollup).toResponse();
+        });
+    }
+
+    /**
+     * Метод getTotalStatistics
+     * Метод возвращает статистику всех постов блога
+     */
+    public StatisticsResponse getTotalStatistics() {
+        return stats.read(state -> state.total.toResponse());
+    }
+
+    // статистика: равны статистики с одинаковыми счётчиками постов
+    private static class Stats {
+        private final Map<Integer, PostStats> posts = new HashMap<>();
+        private final Map<Integer, Rollup> users = new HashMap<>();
+        private final Rollup total = new Rollup();
+
+        private void replace(int postId, PostStatsView view) {
+            PostStats old = posts.remove(postId);
+            if (old != null)
+                apply(old, -1);
+            if (view != null)
+                add(new PostStats(view));
+        }
+
+        private void update(int postId, Consumer<PostStats> change) {
+            PostStats post = posts.get(postId);
+            if (post == null)
+                return;
+            apply(post, -1);
+            change.accept(post);
+            apply(post, 1);
+        }
+
+        private void add(PostStats post) {
+            posts.put(post.id, post);
+            apply(post, 1);
+        }
+
+        private void apply(PostStats post, int sign) {
+            total.apply(post, sign);
+            users.computeIfAbsent(post.userId, id -> new Rollup())
+                    .apply(post, sign);
+            if (users.get(post.userId).posts == 0)
+                users.remove(post.userId);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return this == o || o instanceof Stats
+                    && posts.equals(((Stats) o).posts);
+        }
+
+        @Override
+        public int hashCode() {
+            return posts.hashCode();
+        }
+    }
+
+    // вклад одного опубликованного поста в статистику
+    private static class PostStats {
+        private final int id;
+        private final int userId;
+        private final long time;
+        private int likes;
+        private int dislikes;
+        private long views;
+
+        private PostStats(PostStatsView view) {
+            id = view.getId();
+            userId = view.getUserId();
+            time = view.getTime().getTime();
+            likes = view.getLikeCount();
+            dislikes = view.getDislikeCount();
+            views = view.getViewCount();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (!(o instanceof PostStats))
+                return false;
+            PostStats other = (PostStats) o;
+            return id == other.id && userId == other.userId
+                    && time == other.time && likes == other.likes
+                    && dislikes == other.dislikes && views == other.views;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(id, userId, time, likes, dislikes, views);
+        }
+    }
+
+    // сумма по постам; время публикации -> количество постов, для
+    // определения первой публикации после удаления постов
+    private static class Rollup {
+        private int posts;
+        private int likes;
+        private int dislikes;
+        private long views;
+        private final TreeMap<Long, Integer> times = new TreeMap<>();
+
+        private void apply(PostStats stats, int sign) {
+            posts += sign;
+            likes += sign * stats.likes;
+            dislikes += sign * stats.dislikes;
+            views += sign * stats.views;
+            if (times.merge(stats.time, sign, Integer::sum) == 0)
+                times.remove(stats.time);
+        }
+
+        private StatisticsResponse toResponse() {
+            StatisticsResponse response = new StatisticsResponse();
+            response.setPostsCount(posts);
+            response.setLikesCount(likes);
+            response.setDislikesCount(dislikes);
+            response.setViewsCount((int) views);
+            response.setFirstPublication(
+                    times.isEmpty() ? 0 : times.firstKey() / 1000);
+            return response;
+        }
+    }
+}
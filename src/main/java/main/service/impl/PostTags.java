@@ -0,0 +1,59 @@
+package main.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Класс PostTags
+ * Запись связей постов с тэгами напрямую через JDBC. Текущие связи поста
+ * сравниваются с новыми, и в tag2post добавляются и удаляются только
+ * изменившиеся строки. Ни пост, ни тэги, ни списки постов тэгов при этом
+ * не загружаются
+ *
+ * @version 1.0
+ */
+@Service
+@RequiredArgsConstructor
+public class PostTags {
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Метод update
+     * Метод приводит тэги поста к указанным
+     *
+     * @param postId id поста
+     * @param tagIds id новых тэгов поста
+     */
+    @Transactional
+    public void update(int postId, Collection<Integer> tagIds) {
+        Set<Integer> removed = new HashSet<>(jdbcTemplate.queryForList(
+                "select tag_id from tag2post where post_id = ? for update",
+                Integer.class, postId));
+        Set<Integer> added = new HashSet<>(tagIds);
+        added.removeAll(removed);
+        removed.removeAll(tagIds);
+        if (!removed.isEmpty())
+            jdbcTemplate.batchUpdate(
+                    "delete from tag2post where post_id = ? and tag_id = ?",
+                    rows(postId, removed));
+        if (!added.isEmpty())
+            jdbcTemplate.batchUpdate(
+                    "insert into tag2post (post_id, tag_id) values (?, ?)",
+                    rows(postId, added));
+    }
+
+    private static List<Object[]> rows(int postId, Set<Integer> tagIds) {
+        List<Object[]> rows = new ArrayList<>();
+        for (Integer tagId : tagIds)
+            rows.add(new Object[]{postId, tagId});
+        return rows;
+    }
+}
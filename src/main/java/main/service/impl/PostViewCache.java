@@ -0,0 +1,162 @@
+package main.service.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import main.model.Post;
+import main.model.helper.PostChangedEvent;
+import main.model.response.ids.PostResponse;
+import main.repository.PostRepository;
+import main.service.PostResponseMapper;
+import org.mapstruct.factory.Mappers;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Класс PostViewCache
+ * Кэш готовых ответов /api/post/{id}. Пост загружается одним запросом
+ * вместе с автором и тэгами, все его комментарии - вторым.
+ * Запись живёт posts.viewCacheTtl и удаляется при изменении поста,
+ * модерации, новом комментарии и голосовании. Изменения профилей авторов
+ * видны по истечении времени жизни. Просмотры, записанные в БД после
+ * загрузки ответа, добавляются к записи при каждой записи просмотров
+ *
+ * @version 1.2
+ * @see PostViewCounter
+ */
+@Service
+public class PostViewCache {
+    private final PostRepository postRepository;
+    private final PostComments postComments;
+    private final long ttl;
+    private final int maxSize;
+    private final Map<Integer, CachedPost> posts = new ConcurrentHashMap<>();
+    // меняется при каждой инвалидации и в начале и конце записи
+    // просмотров: ответ, загруженный до неё, в кэш не кладётся
+    private final AtomicLong version = new AtomicLong();
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public PostViewCache(PostRepository postRepository,
+                         PostComments postComments,
+                         @Value("${posts.viewCacheTtl:60000}") long ttl,
+                         @Value("${posts.viewCacheSize:1000}") int maxSize,
+                         MeterRegistry meterRegistry) {
+        this.postRepository = postRepository;
+        this.postComments = postComments;
+        this.ttl = ttl;
+        this.maxSize = maxSize;
+        hits = meterRegistry.counter("posts.view.cache", "result", "hit");
+        misses = meterRegistry.counter("posts.view.cache", "result", "miss");
+        Gauge.builder("posts.view.cache.size", posts, Map::size)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Метод get
+     * Метод возвращает ответ для страницы поста из кэша или из БД. Ответ
+     * общий для всех запросов и не должен изменяться
+     *
+     * @param postId id поста
+     * @return пост или null, если поста нет
+     */
+    @Transactional(readOnly = true)
+    public CachedPost get(int postId) {
+        long now = System.currentTimeMillis();
+        CachedPost cached = posts.get(postId);
+        if (cached != null && cached.expires > now) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+        long loadVersion = version.get();
+        Optional<Post> post = postRepository.findPostForView(postId);
+        if (!post.isPresent()) {
+            posts.remove(postId);
+            return null;
+        }
+        PostResponse response = Mappers.getMapper(PostResponseMapper.class)
+                .postToPostResponse(post.get());
+        response.setComments(postComments.getAll(postId));
+        cached = new CachedPost(response, post.get().getUser().getId(),
+                now + ttl);
+        if (posts.size() >= maxSize)
+            posts.values().removeIf(old -> old.expires <= now);
+        synchronized (this) {
+            if (posts.size() < maxSize && version.get() == loadVersion)
+                posts.put(postId, cached);
+        }
+        return cached;
+    }
+
+    /**
+     * Метод viewsFlushing
+     * Метод вызывается перед записью просмотров в БД: ответ, который
+     * загружается во время записи, может уже содержать часть просмотров
+     * и в кэш не кладётся
+     */
+    public void viewsFlushing() {
+        version.incrementAndGet();
+    }
+
+    /**
+     * Метод viewsFlushed
+     * Метод добавляет записанные в БД просмотры к закэшированным ответам
+     *
+     * @param views количество записанных просмотров по id постов, пустое
+     *              при ошибке записи
+     */
+    public synchronized void viewsFlushed(Map<Integer, Long> views) {
+        views.forEach((postId, count) -> {
+            CachedPost cached = posts.get(postId);
+            if (cached != null)
+                cached.flushedViews.addAndGet(count);
+        });
+        version.incrementAndGet();
+    }
+
+    public void invalidate(int postId) {
+        version.incrementAndGet();
+        posts.remove(postId);
+    }
+
+    public void invalidateAll() {
+        version.incrementAndGet();
+        posts.clear();
+    }
+
+    @EventListener
+    public void onPostChanged(PostChangedEvent event) {
+        invalidate(event.getPostId());
+    }
+
+    /**
+     * Класс CachedPost
+     * Ответ для страницы поста, id автора для учёта просмотров и количество
+     * просмотров, записанных в БД этим экземпляром после загрузки
+     */
+    @Getter
+    @RequiredArgsConstructor
+    public static class CachedPost {
+        private final PostResponse response;
+        private final int userId;
+        @Getter(AccessLevel.NONE)
+        private final AtomicLong flushedViews = new AtomicLong();
+        private final long expires;
+
+        public long getFlushedViews() {
+            return flushedViews.get();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package main.service.impl;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Класс PostViewCounter
+ * Буфер просмотров постов: просмотры накапливаются в памяти и периодически
+ * записываются в таблицу posts одним пакетным запросом
+ * update posts set view_count = view_count + ? where id = ?
+ * Пакет записывается в одной транзакции: при ошибке не записывается ничего,
+ * и те же просмотры записываются следующим вызовом. Записанные просмотры
+ * переносятся в кэш страниц постов, а счётчик поста, который записан и не
+ * просматривался с прошлой записи, удаляется
+ *
+ * @version 1.2
+ * @see PostViewCache
+ */
+@Service
+public class PostViewCounter {
+    private static final Logger log =
+            LoggerFactory.getLogger(PostViewCounter.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final PostStatistics postStatistics;
+    private final ContentVersions contentVersions;
+    private final PostViewCache postViewCache;
+    private final Map<Integer, ViewCount> views = new ConcurrentHashMap<>();
+    private final LongAdder pending = new LongAdder();
+
+    public PostViewCounter(JdbcTemplate jdbcTemplate,
+                           PlatformTransactionManager transactionManager,
+                           PostStatistics postStatistics,
+                           ContentVersions contentVersions,
+                           PostViewCache postViewCache,
+                           MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.postStatistics = postStatistics;
+        this.contentVersions = contentVersions;
+        this.postViewCache = postViewCache;
+        Gauge.builder("posts.views.pending", pending, LongAdder::sum)
+                .description("Просмотры постов, ещё не записанные в БД")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Метод increment
+     * Метод учитывает просмотр поста
+     *
+     * @param postId id поста
+     */
+    public void increment(int postId) {
+        // под блокировкой записи карты, чтобы flush не удалил счётчик
+        // между его получением и увеличением
+        views.compute(postId, (id, count) -> {
+            if (count == null)
+                count = new ViewCount();
+            count.total.increment();
+            return count;
+        });
+        pending.increment();
+    }
+
+    /**
+     * Метод getPending
+     * Метод возвращает количество просмотров поста, ещё не записанных в БД
+     *
+     * @param postId id поста
+     */
+    public int getPending(int postId) {
+        ViewCount count = views.get(postId);
+        return count == null ? 0 : (int) (count.total.sum() - count.flushed);
+    }
+
+    /**
+     * Метод flush
+     * Метод записывает накопленные просмотры в БД. Запускается по расписанию
+     * views.flushDelay и при остановке приложения
+     */
+    @Scheduled(fixedDelayString = "${views.flushDelay:5000}")
+    @PreDestroy
+    public synchronized void flush() {
+        List<Integer> ids = new ArrayList<>();
+        List<Object[]> batch = new ArrayList<>();
+        List<Integer> idle = new ArrayList<>();
+        for (Map.Entry<Integer, ViewCount> entry : views.entrySet()) {
+            long delta = entry.getValue().total.sum()
+                    - entry.getValue().flushed;
+            if (delta > 0) {
+                ids.add(entry.getKey());
+                batch.add(new Object[]{delta, entry.getKey()});
+            }
+            else
+                idle.add(entry.getKey());
+        }
+        for (Integer id : idle)
+            views.computeIfPresent(id, (key, count) ->
+                    count.total.sum() == count.flushed ? null : count);
+        if (batch.isEmpty())
+            return;
+        postViewCache.viewsFlushing();
+        try {
+            transactionTemplate.execute(status -> jdbcTemplate.batchUpdate(
+                    "update posts set view_count = view_count + ? " +
+                    "where id = ?", batch));
+        }
+        catch (DataAccessException | TransactionException e) {
+            log.warn("Post views flush failed, will retry", e);
+            postViewCache.viewsFlushed(Collections.emptyMap());
+            return;
+        }
+        Map<Integer, Long> flushed = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++)
+            flushed.put(ids.get(i), (Long) batch.get(i)[0]);
+        // сначала в кэш, чтобы показанное число просмотров не уменьшалось
+        postViewCache.viewsFlushed(flushed);
+        flushed.forEach((id, delta) -> {
+            // счётчик с незаписанными просмотрами не удаляется
+            views.get(id).flushed += delta;
+            pending.add(-delta);
+            postStatistics.onViews(id, delta);
+            contentVersions.postViewed(id);
+        });
+    }
+
+    // просмотры поста: total меняют потоки запросов, flushed - только flush
+    private static final class ViewCount {
+        private final LongAdder total = new LongAdder();
+        private volatile long flushed;
+    }
+}
@@ -0,0 +1,89 @@
+package main.service.impl;
+
+import main.model.User;
+import main.model.helper.UserPrincipal;
+import main.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Класс PrincipalCache
+ * Общий для всех запросов кэш данных пользователей с временем жизни
+ * auth.principalTtl и размером не больше auth.principalCacheSize. Запись
+ * удаляется при изменении профиля
+ *
+ * @version 1.1
+ * @see CurrentPrincipal
+ */
+@Service
+public class PrincipalCache {
+    // заполненный кэш очищается от истёкших записей не чаще, мс
+    private static final long SWEEP_INTERVAL = 1000;
+
+    private final UserRepository userRepository;
+    private final long ttl;
+    private final int maxSize;
+    private final Map<Integer, Entry> principals = new ConcurrentHashMap<>();
+    // меняется при каждой инвалидации: данные, загруженные до неё, в кэш
+    // не кладутся
+    private final AtomicLong version = new AtomicLong();
+    private volatile long nextSweep;
+
+    public PrincipalCache(UserRepository userRepository,
+                          @Value("${auth.principalTtl:60000}") long ttl,
+                          @Value("${auth.principalCacheSize:10000}")
+                                  int maxSize) {
+        this.userRepository = userRepository;
+        this.ttl = ttl;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Метод get
+     * Метод возвращает данные пользователя из кэша или из БД
+     *
+     * @param userId id пользователя
+     * @return данные пользователя или null, если пользователь не найден
+     */
+    public UserPrincipal get(int userId) {
+        long now = System.currentTimeMillis();
+        Entry entry = principals.get(userId);
+        if (entry != null && entry.expires > now)
+            return entry.principal;
+        long loadVersion = version.get();
+        Optional<User> user = userRepository.findById(userId);
+        if (!user.isPresent()) {
+            principals.remove(userId);
+            return null;
+        }
+        UserPrincipal principal = UserPrincipal.of(user.get());
+        if (principals.size() >= maxSize && now >= nextSweep) {
+            nextSweep = now + SWEEP_INTERVAL;
+            principals.values().removeIf(old -> old.expires <= now);
+        }
+        if ((principals.size() < maxSize || principals.containsKey(userId))
+                && version.get() == loadVersion)
+            principals.put(userId, new Entry(principal, now + ttl));
+        return principal;
+    }
+
+    public void invalidate(int userId) {
+        version.incrementAndGet();
+        principals.remove(userId);
+    }
+
+    private static final class Entry {
+        private final UserPrincipal principal;
+        private final long expires;
+
+        private Entry(UserPrincipal principal, long expires) {
+            this.principal = principal;
+            this.expires = expires;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package main.service.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Класс Rebuilder
+ * Состояние структуры в памяти, которая обновляется по событиям этого
+ * экземпляра приложения и периодически перестраивается по БД, чтобы учесть
+ * изменения, сделанные другими экземплярами. Новое состояние загружается
+ * без блокировки, заменяет текущее под блокировкой на запись, и к нему
+ * повторно применяются изменения, пришедшие за время загрузки
+ *
+ * @param <S> состояние структуры
+ * @param <E> изменение состояния
+ * @version 1.0
+ * @see PostCounterReconciler
+ */
+class Rebuilder<S, E> {
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final BiConsumer<S, E> apply;
+    private S state;
+    // изменения, пришедшие во время перестроения; null - перестроения нет
+    private List<E> missed;
+
+    Rebuilder(S state, BiConsumer<S, E> apply) {
+        this.state = state;
+        this.apply = apply;
+    }
+
+    /**
+     * Метод read
+     * Метод выполняет запрос к состоянию под блокировкой на чтение
+     */
+    <R> R read(Function<S, R> query) {
+        lock.readLock().lock();
+        try {
+            return query.apply(state);
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Метод change
+     * Метод применяет изменение, а во время перестроения ещё и запоминает
+     * его
+     */
+    void change(E change) {
+        lock.writeLock().lock();
+        try {
+            apply.accept(state, change);
+            if (missed != null)
+                missed.add(change);
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Метод rebuild
+     * Метод заменяет состояние загруженным и повторно применяет к нему
+     * изменения, пришедшие от начала загрузки
+     *
+     * @param load загрузка состояния из БД, выполняется без блокировки
+     * @return true, если новое состояние отличается от прежнего
+     */
+    synchronized boolean rebuild(Supplier<S> load) {
+        setMissed(new ArrayList<>());
+        try {
+            S loaded = load.get();
+            lock.writeLock().lock();
+            try {
+                S old = state;
+                state = loaded;
+                for (E change : missed)
+                    apply.accept(loaded, change);
+                return !loaded.equals(old);
+            }
+            finally {
+                lock.writeLock().unlock();
+            }
+        }
+        finally {
+            setMissed(null);
+        }
+    }
+
+    private void setMissed(List<E> changes) {
+        lock.writeLock().lock();
+        try {
+            missed = changes;
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package main.service.impl;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import main.model.Post;
+import main.model.helper.PostChangedEvent;
+import main.repository.PostRepository;
+import main.service.TextAnalyzer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Класс SearchIndex
+ * Инвертированный индекс опубликованных постов в памяти: терм -> посты с
+ * частотой терма. Строится при старте приложения, обновляется по
+ * PostChangedEvent и перестраивается по БД вместе с остальными структурами.
+ * Результаты ранжируются по BM25
+ *
+ * @version 1.2
+ * @see TextAnalyzer
+ * @see Rebuilder
+ */
+@Service
+@RequiredArgsConstructor
+public class SearchIndex {
+    private static final Logger log = LoggerFactory.getLogger(SearchIndex.class);
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    // слова заголовка весят больше слов текста
+    private static final int TITLE_WEIGHT = 3;
+    private static final int LOAD_PAGE = 200;
+
+    private final PostRepository postRepository;
+
+    private final Rebuilder<Index, PostChangedEvent> index =
+            new Rebuilder<>(new Index(), Index::apply);
+
+    /**
+     * Метод build
+     * Метод индексирует опубликованные посты при старте приложения и при
+     * периодическом перестроении. Посты загружаются и разбираются на термы
+     * без блокировки
+     *
+     * @return true, если индекс изменился
+     * @see PostCounterReconciler
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public boolean build() {
+        return index.rebuild(this::load);
+    }
+
+    /**
+     * Метод onPostChanged
+     * Метод переиндексирует пост, а неопубликованный - удаляет из индекса
+     */
+    @EventListener
+    public void onPostChanged(PostChangedEvent event) {
+        index.change(event);
+    }
+
+    /**
+     * Метод search
+     * Метод возвращает посты, содержащие хотя бы один терм запроса, по
+     * убыванию релевантности, при равной релевантности - по убыванию id
+     *
+     * @param query поисковый запрос
+     */
+    public List<Hit> search(String query) {
+        Set<String> terms = new LinkedHashSet<>(TextAnalyzer.analyze(query));
+        List<Hit> hits = index.read(built -> built.search(terms));
+        hits.sort(Comparator.comparingDouble(Hit::getScore)
+                .thenComparingInt(Hit::getPostId).reversed());
+        return hits;
+    }
+
+    // индексирует все опубликованные посты
+    private Index load() {
+        Index loaded = new Index();
+        int page = 0;
+        List<Post> posts;
+        do {
+            posts = postRepository.findPublishedPosts(
+                    PageRequest.of(page++, LOAD_PAGE));
+            for (Post post : posts)
+                loaded.add(post.getId(),
+                        new Terms(post.getTitle(), post.getText()));
+        } while (posts.size() == LOAD_PAGE);
+        log.info("Search index built: {} posts, {} terms",
+                loaded.documents.size(), loaded.postings.size());
+        return loaded;
+    }
+
+    /**
+     * Класс Hit
+     * Найденный пост и его релевантность
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Hit {
+        private final int postId;
+        private final double score;
+    }
+
+    // индекс: равны индексы с одинаковыми постами и частотами термов
+    private static class Index {
+        private final Map<String, Map<Integer, Integer>> postings =
+                new HashMap<>();
+        private final Map<Integer, Document> documents = new HashMap<>();
+        private long totalLength;
+
+        private void apply(PostChangedEvent event) {
+            remove(event.getPostId());
+            if (event.isPublished())
+                add(event.getPostId(),
+                        new Terms(event.getTitle(), event.getText()));
+        }
+
+        private List<Hit> search(Set<String> terms) {
+            List<Hit> hits = new ArrayList<>();
+            int count = documents.size();
+            if (count == 0)
+                return hits;
+            double averageLength = (double) totalLength / count;
+            Map<Integer, Double> scores = new HashMap<>();
+            for (String term : terms) {
+                Map<Integer, Integer> posts = postings.get(term);
+                if (posts == null)
+                    continue;
+                double idf = Math.log(1 + (count - posts.size() + 0.5)
+                        / (posts.size() + 0.5));
+                for (Map.Entry<Integer, Integer> entry : posts.entrySet()) {
+                    double tf = entry.getValue();
+                    double norm = 1 - B + B * documents.get(entry.getKey())
+                            .length / averageLength;
+                    scores.merge(entry.getKey(),
+                            idf * tf * (K1 + 1) / (tf + K1 * norm),
+                            Double::sum);
+                }
+            }
+            for (Map.Entry<Integer, Double> entry : scores.entrySet())
+                hits.add(new Hit(entry.getKey(), entry.getValue()));
+            return hits;
+        }
+
+        private void add(int postId, Terms terms) {
+            for (Map.Entry<String, Integer> entry :
+                    terms.frequencies.entrySet())
+                postings.computeIfAbsent(entry.getKey(),
+                        term -> new HashMap<>()).put(postId, entry.getValue());
+            documents.put(postId, new Document(terms.length,
+                    terms.frequencies.keySet().toArray(new String[0])));
+            totalLength += terms.length;
+        }
+
+        private void remove(int postId) {
+            Document document = documents.remove(postId);
+            if (document == null)
+                return;
+            for (String term : document.terms) {
+                Map<Integer, Integer> posts = postings.get(term);
+                posts.remove(postId);
+                if (posts.isEmpty())
+                    postings.remove(term);
+            }
+            totalLength -= document.length;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (!(o instanceof Index))
+                return false;
+            Index other = (Index) o;
+            return totalLength == other.totalLength
+                    && documents.keySet().equals(other.documents.keySet())
+                    && postings.equals(other.postings);
+        }
+
+        @Override
+        public int hashCode() {
+            return postings.hashCode();
+        }
+    }
+
+    // термы поста с частотами и длина поста в термах
+    private static class Terms {
+        private final Map<String, Integer> frequencies = new HashMap<>();
+        private int length;
+
+        private Terms(String title, String text) {
+            for (String term : TextAnalyzer.analyze(title)) {
+                frequencies.merge(term, TITLE_WEIGHT, Integer::sum);
+                length += TITLE_WEIGHT;
+            }
+            for (String term : TextAnalyzer.analyze(text)) {
+                frequencies.merge(term, 1, Integer::sum);
+                length++;
+            }
+        }
+    }
+
+    // длина поста в термах и его различные термы, нужны для удаления
+    @AllArgsConstructor
+    private static class Document {
+        private final int length;
+        private final String[] terms;
+    }
+}
@@ -0,0 +1,129 @@
+package main.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import main.model.helper.PostChangedEvent;
+import main.model.helper.TagLinkView;
+import main.repository.Tag2PostRepository;
+import main.model.response.others.NameWeightResp;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Класс TagCloud
+ * Облако тэгов в памяти: количество опубликованных постов по каждому тэгу.
+ * Строится при старте приложения, обновляется по PostChangedEvent и
+ * перестраивается по БД вместе с остальными структурами
+ *
+ * @version 1.2
+ * @see Rebuilder
+ */
+@Service
+@RequiredArgsConstructor
+public class TagCloud {
+    private final Tag2PostRepository tag2PostRepository;
+
+    private final Rebuilder<Cloud, PostChangedEvent> cloud =
+            new Rebuilder<>(new Cloud(), Cloud::apply);
+
+    /**
+     * Метод build
+     * Метод строит облако по БД при старте приложения и при периодическом
+     * перестроении
+     *
+     * @return true, если облако изменилось
+     * @see PostCounterReconciler
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public boolean build() {
+        return cloud.rebuild(() -> {
+            Map<Integer, Set<String>> links = new HashMap<>();
+            for (TagLinkView link : tag2PostRepository.findActiveTagLinks())
+                links.computeIfAbsent(link.getPostId(), id -> new HashSet<>())
+                        .add(link.getName());
+            Cloud loaded = new Cloud();
+            for (Map.Entry<Integer, Set<String>> entry : links.entrySet())
+                loaded.add(entry.getKey(), entry.getValue());
+            return loaded;
+        });
+    }
+
+    @EventListener
+    public void onPostChanged(PostChangedEvent event) {
+        cloud.change(event);
+    }
+
+    /**
+     * Метод getWeights
+     * Метод возвращает тэги, начинающиеся на prefix, с весом от 0 до 1:
+     * количеством постов тэга, делённым на количество постов самого
+     * популярного тэга
+     *
+     * @param prefix начало имени тэга, null или пустая строка - все тэги
+     */
+    public List<NameWeightResp> getWeights(String prefix) {
+        return cloud.read(built -> built.getWeights(prefix));
+    }
+
+    // облако: равны облака с одинаковыми тэгами постов
+    private static class Cloud {
+        // имена тэгов сравниваются без учёта регистра, как в БД
+        private final NavigableMap<String, Integer> counts =
+                new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        private final Map<Integer, Set<String>> postTags = new HashMap<>();
+
+        private void apply(PostChangedEvent event) {
+            remove(event.getPostId());
+            if (event.isPublished())
+                add(event.getPostId(), event.getTags());
+        }
+
+        private List<NameWeightResp> getWeights(String prefix) {
+            List<NameWeightResp> tags = new ArrayList<>();
+            int max = 0;
+            for (int count : counts.values())
+                max = Math.max(max, count);
+            Map<String, Integer> selected = prefix == null || prefix.isEmpty()
+                    ? counts
+                    : counts.subMap(prefix, true, prefix + Character.MAX_VALUE,
+                    false);
+            for (Map.Entry<String, Integer> entry : selected.entrySet()) {
+                NameWeightResp tag = new NameWeightResp();
+                tag.setName(entry.getKey());
+                tag.setWeight((float) entry.getValue() / max);
+                tags.add(tag);
+            }
+            return tags;
+        }
+
+        private void add(int postId, Set<String> tags) {
+            if (tags.isEmpty())
+                return;
+            postTags.put(postId, new HashSet<>(tags));
+            for (String tag : tags)
+                counts.merge(tag, 1, Integer::sum);
+        }
+
+        private void remove(int postId) {
+            Set<String> tags = postTags.remove(postId);
+            if (tags == null)
+                return;
+            for (String tag : tags)
+                if (counts.merge(tag, -1, Integer::sum) == 0)
+                    counts.remove(tag);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return this == o || o instanceof Cloud
+                    && postTags.equals(((Cloud) o).postTags);
+        }
+
+        @Override
+        public int hashCode() {
+            return postTags.hashCode();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package main.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import main.model.helper.TagIdView;
+import main.repository.TagRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Класс TagDictionary
+ * Словарь тэгов в памяти: имя -> id. Загружается при старте приложения и
+ * пополняется при добавлении тэгов. Имена сравниваются без учёта регистра,
+ * как в БД. Новые тэги добавляются запросом, который не падает, если тот
+ * же тэг одновременно добавил другой запрос. Тэги, найденные или
+ * добавленные в транзакции, попадают в словарь после её фиксации
+ *
+ * @version 1.1
+ */
+@Service
+@RequiredArgsConstructor
+public class TagDictionary {
+    private final TagRepository tagRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    // ключ - имя в нижнем регистре, значение - id и имя, как в БД
+    private final Map<String, Entry> tags = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        for (TagIdView tag : tagRepository.findTagIds())
+            tags.putIfAbsent(key(tag.getName()), new Entry(tag));
+    }
+
+    /**
+     * Метод resolve
+     * Метод возвращает id тэгов с указанными именами, отсутствующие тэги
+     * добавляет. Тэги, которых нет в словаре, ищутся в БД одним запросом,
+     * а добавляются одним пакетом
+     *
+     * @param names имена тэгов
+     * @return id тэгов -> имена тэгов, как в БД
+     */
+    public Map<Integer, String> resolve(Collection<String> names) {
+        Map<Integer, String> result = new HashMap<>();
+        Map<String, String> misses = new HashMap<>();
+        for (String name : names) {
+            Entry tag = tags.get(key(name));
+            if (tag != null)
+                result.put(tag.id, tag.name);
+            else
+                misses.putIfAbsent(key(name), name);
+        }
+        if (misses.isEmpty())
+            return result;
+
+        Set<String> found = fetch(misses.values(), result);
+        List<Object[]> batch = new ArrayList<>();
+        for (Map.Entry<String, String> miss : misses.entrySet())
+            if (!found.contains(miss.getKey()))
+                batch.add(new Object[]{miss.getValue()});
+        if (batch.isEmpty())
+            return result;
+        // при одновременном добавлении того же тэга вставка ничего не
+        // меняет, а id берётся повторным поиском
+        jdbcTemplate.batchUpdate("insert into tags (name) values (?) " +
+                "on duplicate key update id = id", batch);
+        List<String> inserted = new ArrayList<>();
+        for (Object[] row : batch)
+            inserted.add((String) row[0]);
+        fetch(inserted, result);
+        return result;
+    }
+
+    // ищет тэги в БД, пополняет словарь и result; возвращает найденные ключи
+    private Set<String> fetch(Collection<String> names,
+                              Map<Integer, String> result) {
+        Map<String, Entry> fetched = new HashMap<>();
+        for (TagIdView tag : tagRepository.findTagIdsByNames(names)) {
+            fetched.put(key(tag.getName()), new Entry(tag));
+            result.put(tag.getId(), tag.getName());
+        }
+        remember(fetched);
+        return fetched.keySet();
+    }
+
+    // тэг, добавленный в откаченной транзакции, не должен остаться в словаре
+    private void remember(Map<String, Entry> fetched) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            tags.putAll(fetched);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronizationAdapter() {
+                    @Override
+                    public void afterCommit() {
+                        tags.putAll(fetched);
+                    }
+                });
+    }
+
+    private static String key(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Entry {
+        private final int id;
+        private final String name;
+
+        private Entry(TagIdView tag) {
+            this.id = tag.getId();
+            this.name = tag.getName();
+        }
+    }
+}
@@ -1,46 +1,93 @@
 package main.service.impl;
 
 import main.model.User;
-import main.model.helper.Account;
 import main.repository.UserRepository;
 import main.service.UserService;
-import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Класс UserServiceImpl
- * Сервисный слой для работы с пользователями
+ * Сервисный слой для работы с пользователями. Пользователь загружается из
+ * БД при первой авторизации, а не при старте приложения, и хранится в
+ * кэше auth.userDetailsTtl, не более auth.userDetailsCacheSize записей.
+ * Пароль хранится в БД открытым текстом и передаётся с префиксом {noop},
+ * поэтому при загрузке он не кодируется. Модератор получает роль ADMIN,
+ * остальные пользователи - USER. Запись удаляется при смене имени или
+ * пароля
  *
- * @version 1.0
+ * @version 1.4
+ * @see main.config.BasicConfiguration#passwordEncoder()
  */
-
+@Service
 public class UserServiceImpl implements UserService {
-    @Autowired
     private final UserRepository userRepository;
+    private final long ttl;
+    private final int maxSize;
+    private final Map<String, Entry> users = new ConcurrentHashMap<>();
+    // меняется при каждой инвалидации: пользователь, загруженный до неё,
+    // в кэш не кладётся
+    private final AtomicLong version = new AtomicLong();
 
-    public UserServiceImpl
-            (UserRepository userRepository) {
+    public UserServiceImpl(
+            UserRepository userRepository,
+            @Value("${auth.userDetailsTtl:60000}") long ttl,
+            @Value("${auth.userDetailsCacheSize:10000}") int maxSize) {
         this.userRepository = userRepository;
+        this.ttl = ttl;
+        this.maxSize = maxSize;
     }
 
     /**
-     * Метод getAccounts
-     * Метод возвращает список пользователей из БД
+     * Метод loadUserByUsername
+     * Метод возвращает пользователя по имени из кэша или из БД
      *
-     * @see Account
+     * @param name имя пользователя
+     * @throws UsernameNotFoundException если пользователя с таким именем нет
      */
     @Override
-    public List<Account> getAccounts() {
-        List<User> admins = userRepository.findAll();
-        List<Account> accounts = new ArrayList<>();
-        for (User admin : admins) {
-            String name = admin.getName();
-            String password = admin.getPassword();
-            Account account = new Account(name, password);
-            accounts.add(account);
+    public UserDetails loadUserByUsername(String name) {
+        long now = System.currentTimeMillis();
+        Entry entry = users.get(name);
+        if (entry != null && entry.expires > now)
+            return entry.details;
+        long loadVersion = version.get();
+        User user = userRepository.findByName(name);
+        if (user == null) {
+            users.remove(name);
+            throw new UsernameNotFoundException(name);
+        }
+        UserDetails details = org.springframework.security.core.userdetails
+                .User.withUsername(user.getName())
+                .password("{noop}" + user.getPassword())
+                .roles(user.isModerator() ? "ADMIN" : "USER")
+                .build();
+        if (users.size() >= maxSize)
+            users.values().removeIf(old -> old.expires <= now);
+        if (users.size() < maxSize && version.get() == loadVersion)
+            users.put(name, new Entry(details, now + ttl));
+        return details;
+    }
+
+    @Override
+    public void invalidate(String name) {
+        version.incrementAndGet();
+        users.remove(name);
+    }
+
+    private static final class Entry {
+        private final UserDetails details;
+        private final long expires;
+
+        private Entry(UserDetails details, long expires) {
+            this.details = details;
+            this.expires = expires;
         }
-        return accounts;
     }
 }
@@ -0,0 +1,12 @@
+create table mail_queue
+    (id integer not null auto_increment,
+    recipient varchar(255) not null,
+    subject varchar(255) not null,
+    text TEXT not null,
+    attempts integer not null default 0,
+    next_attempt datetime(6) not null,
+    last_error varchar(255),
+    primary key (id));
+
+create index idx_mail_queue_next_attempt
+    on mail_queue (next_attempt);
@@ -0,0 +1,5 @@
+create index idx_post_comments_post
+    on post_comments (post_id, id);
+
+create index idx_post_comments_parent
+    on post_comments (parent_id, id);
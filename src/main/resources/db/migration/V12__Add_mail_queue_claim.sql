@@ -0,0 +1,5 @@
+alter table mail_queue
+    add column claim varchar(36);
+
+create index idx_mail_queue_claim
+    on mail_queue (claim);
@@ -0,0 +1,18 @@
+alter table posts
+    add column likes_count integer not null default 0,
+    add column dislikes_count integer not null default 0,
+    add column comments_count integer not null default 0;
+
+update posts set
+    likes_count = (select count(*) from post_votes
+        where post_votes.post_id = posts.id and post_votes.value = 1),
+    dislikes_count = (select count(*) from post_votes
+        where post_votes.post_id = posts.id and post_votes.value = -1),
+    comments_count = (select count(*) from post_comments
+        where post_comments.post_id = posts.id);
+
+create index idx_posts_likes
+    on posts (is_active, moderation_status, likes_count, id);
+
+create index idx_posts_comments
+    on posts (is_active, moderation_status, comments_count, id);
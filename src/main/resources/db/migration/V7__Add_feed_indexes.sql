@@ -0,0 +1,8 @@
+create index idx_posts_feed_time
+    on posts (is_active, moderation_status, time, id);
+
+create index idx_posts_user_time
+    on posts (user_id, is_active, moderation_status, time);
+
+create index idx_tag2post_tag
+    on tag2post (tag_id, post_id);
@@ -0,0 +1,2 @@
+alter table posts
+    add column announce varchar(255);
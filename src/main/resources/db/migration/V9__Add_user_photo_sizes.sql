@@ -0,0 +1,3 @@
+alter table users
+    add column photo_72 TEXT,
+    add column photo_144 TEXT;
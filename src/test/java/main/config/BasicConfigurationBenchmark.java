@@ -0,0 +1,44 @@
+package main.config;
+
+import main.repository.UserRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Класс BasicConfigurationBenchmark
+ * Время старта контекста авторизации при разном числе пользователей в БД.
+ * Не входит в обычный прогон тестов, запускается профилем benchmark:
+ * mvn test -Pbenchmark
+ *
+ * @version 1.0
+ */
+@Tag("benchmark")
+class BasicConfigurationBenchmark {
+    private static final Logger log =
+            LoggerFactory.getLogger(BasicConfigurationBenchmark.class);
+    private static final int FEW_USERS = 10;
+    private static final int MANY_USERS = 100000;
+    private static final int STARTS = 5;
+
+    @Test
+    void startupWithFewAndManyUsers() {
+        // прогрев загрузчика классов и Spring
+        timeStartups(BasicConfigurationTest.seeded(FEW_USERS));
+
+        long fewNanos = timeStartups(BasicConfigurationTest.seeded(FEW_USERS));
+        long manyNanos =
+                timeStartups(BasicConfigurationTest.seeded(MANY_USERS));
+        log.info("Context start: {} users {} ms, {} users {} ms",
+                FEW_USERS, fewNanos / 1000000, MANY_USERS, manyNanos / 1000000);
+    }
+
+    // среднее время старта контекста, нс
+    private static long timeStartups(UserRepository repository) {
+        long start = System.nanoTime();
+        for (int i = 0; i < STARTS; i++)
+            BasicConfigurationTest.start(repository).close();
+        return (System.nanoTime() - start) / STARTS;
+    }
+}
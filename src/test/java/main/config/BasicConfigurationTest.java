@@ -0,0 +1,93 @@
+package main.config;
+
+import main.model.User;
+import main.repository.UserRepository;
+import main.service.UserService;
+import main.service.impl.UserServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Класс BasicConfigurationTest
+ * Контекст авторизации стартует без обращения к таблице users, а
+ * пользователь загружается при первой авторизации. Время старта измеряет
+ * BasicConfigurationBenchmark
+ *
+ * @version 1.1
+ */
+class BasicConfigurationTest {
+    private static final int USERS = 10;
+    private static final int MANY_USERS = 100000;
+
+    @Test
+    void startupDoesNotLoadUsers() {
+        UserRepository few = seeded(USERS);
+        UserRepository many = seeded(MANY_USERS);
+        start(few).close();
+        start(many).close();
+        verifyNoInteractions(few, many);
+    }
+
+    @Test
+    void userIsLoadedOnFirstLogin() {
+        UserRepository repository = seeded(USERS);
+        try (AnnotationConfigApplicationContext context = start(repository)) {
+            UserService userService = context.getBean(UserService.class);
+
+            UserDetails details = userService.loadUserByUsername("user3");
+            userService.loadUserByUsername("user3");
+
+            assertEquals("user3", details.getUsername());
+            // не модератор, actuator ему недоступен
+            assertEquals("ROLE_USER", details.getAuthorities().iterator()
+                    .next().getAuthority());
+            // пароль из БД не кодируется при загрузке
+            assertEquals("{noop}password3", details.getPassword());
+            assertTrue(BasicConfiguration.passwordEncoder()
+                    .matches("password3", details.getPassword()));
+            verify(repository, times(1)).findByName("user3");
+            verify(repository, never()).findAll();
+        }
+    }
+
+    static AnnotationConfigApplicationContext start(
+            UserRepository repository) {
+        AnnotationConfigApplicationContext context =
+                new AnnotationConfigApplicationContext();
+        context.registerBean(UserRepository.class, () -> repository);
+        context.register(UserServiceImpl.class, BasicConfiguration.class);
+        context.refresh();
+        return context;
+    }
+
+    // таблица users с count пользователями userN / passwordN
+    static UserRepository seeded(int count) {
+        List<User> users = new ArrayList<>();
+        Map<String, User> byName = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            User user = new User();
+            user.setId(i + 1);
+            user.setName("user" + i);
+            user.setEmail("user" + i + "@localhost");
+            user.setPassword("password" + i);
+            users.add(user);
+            byName.put(user.getName(), user);
+        }
+        UserRepository repository = mock(UserRepository.class);
+        when(repository.findAll()).thenReturn(users);
+        when(repository.findByName(anyString()))
+                .thenAnswer(call -> byName.get(call.<String>getArgument(0)));
+        when(repository.count()).thenReturn((long) count);
+        return repository;
+    }
+}
@@ -0,0 +1,114 @@
+package main.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Класс PostRepositoryTest
+ * Пересчёт счётчиков постов диапазонами id на H2 в режиме совместимости с
+ * MySQL. Тесты не оборачиваются в транзакцию: PostCounterReconciler
+ * вызывает пересчёт каждого диапазона в своей
+ *
+ * @version 1.0
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:posts;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        // миграции написаны для MySQL, схема строится по сущностям
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PostRepositoryTest {
+    @Autowired
+    private PostRepository repository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("insert into users (id, is_moderator, " +
+                "reg_time, name, email, password) values " +
+                "(1, 0, now(), 'user', 'user@localhost', 'password')");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("delete from post_votes");
+        jdbcTemplate.update("delete from post_comments");
+        jdbcTemplate.update("delete from posts");
+        jdbcTemplate.update("delete from users");
+    }
+
+    @Test
+    void reconcileWritesOnlyPostsWithWrongCounters() {
+        post(1, 2, 1, 1);
+        vote(1, 1, 1);
+        vote(2, 1, 1);
+        vote(3, 1, -1);
+        comment(1, 1);
+        post(2, 5, 0, 0);
+        vote(4, 2, 1);
+
+        assertEquals(1, repository.reconcileCounters(0, 500));
+
+        assertCounters(1, 2, 1, 1);
+        assertCounters(2, 1, 0, 0);
+    }
+
+    @Test
+    void reconcileTouchesOnlyGivenIdRange() {
+        post(1, 3, 3, 3);
+        post(500, 3, 3, 3);
+
+        assertEquals(1, repository.reconcileCounters(0, 500));
+
+        assertCounters(1, 0, 0, 0);
+        assertCounters(500, 3, 3, 3);
+        assertEquals(500, repository.findMaxId());
+    }
+
+    private void post(int id, int likes, int dislikes, int comments) {
+        jdbcTemplate.update("insert into posts (id, is_active, " +
+                "moderation_status, moderator_id, time, title, text, " +
+                "view_count, likes_count, dislikes_count, comments_count, " +
+                "user_id) values (?, 1, 'ACCEPTED', 0, now(), 'title', " +
+                "'text', 0, ?, ?, ?, 1)", id, likes, dislikes, comments);
+    }
+
+    private void vote(int id, int postId, int value) {
+        jdbcTemplate.update("insert into post_votes (id, time, value, " +
+                "user_id, post_id) values (?, now(), ?, 1, ?)",
+                id, value, postId);
+    }
+
+    private void comment(int id, int postId) {
+        jdbcTemplate.update("insert into post_comments (id, time, text, " +
+                "user_id, post_id) values (?, now(), 'text', 1, ?)",
+                id, postId);
+    }
+
+    private void assertCounters(int id, int likes, int dislikes,
+                                int comments) {
+        assertEquals(likes, (int) jdbcTemplate.queryForObject(
+                "select likes_count from posts where id = ?",
+                Integer.class, id));
+        assertEquals(dislikes, (int) jdbcTemplate.queryForObject(
+                "select dislikes_count from posts where id = ?",
+                Integer.class, id));
+        assertEquals(comments, (int) jdbcTemplate.queryForObject(
+                "select comments_count from posts where id = ?",
+                Integer.class, id));
+    }
+}
@@ -0,0 +1,126 @@
+package main.repository;
+
+import main.model.QueuedMail;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Класс QueuedMailRepositoryTest
+ * Запросы очереди писем, в том числе update ... order by id limit, на H2 в
+ * режиме совместимости с MySQL. Тесты не оборачиваются в транзакцию:
+ * MailQueue вызывает каждый запрос в своей
+ *
+ * @version 1.0
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:mail;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        // миграции написаны для MySQL, схема строится по сущностям
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class QueuedMailRepositoryTest {
+    private static final long MINUTE = 60000;
+
+    @Autowired
+    private QueuedMailRepository repository;
+
+    private final long now = System.currentTimeMillis();
+
+    @AfterEach
+    void tearDown() {
+        repository.deleteAll();
+    }
+
+    @Test
+    void claimsDueMailInIdOrderUpToLimit() {
+        int first = enqueue(now - MINUTE);
+        int second = enqueue(now - MINUTE);
+        int notDue = enqueue(now + MINUTE);
+        int third = enqueue(now);
+
+        int claimed = repository.claimDue("a", new Date(now),
+                new Date(now + 10 * MINUTE), 2);
+
+        assertEquals(2, claimed);
+        List<QueuedMail> batch = repository.findClaimed("a");
+        assertEquals(Arrays.asList(first, second), ids(batch));
+        for (QueuedMail mail : batch)
+            assertEquals(now + 10 * MINUTE, mail.getNextAttempt().getTime());
+        assertEquals(1, repository.claimDue("b", new Date(now),
+                new Date(now + 10 * MINUTE), 2));
+        assertEquals(Collections.singletonList(third),
+                ids(repository.findClaimed("b")));
+        assertNull(repository.findById(notDue).get().getClaim());
+    }
+
+    @Test
+    void claimedMailIsNotClaimedAgainUntilLeaseEnds() {
+        int id = enqueue(now);
+        repository.claimDue("a", new Date(now), new Date(now + MINUTE), 10);
+
+        assertEquals(0, repository.claimDue("b", new Date(now),
+                new Date(now + MINUTE), 10));
+
+        // экземпляр "a" не отправил письмо до конца закрепления
+        assertEquals(1, repository.claimDue("c", new Date(now + MINUTE),
+                new Date(now + 2 * MINUTE), 10));
+        assertEquals(Collections.singletonList(id),
+                ids(repository.findClaimed("c")));
+        assertTrue(repository.findClaimed("a").isEmpty());
+    }
+
+    @Test
+    void postponeReleasesClaimAndCountsAttempt() {
+        int id = enqueue(now);
+        repository.claimDue("a", new Date(now), new Date(now + MINUTE), 10);
+
+        repository.postpone(id, new Date(now + 5 * MINUTE), "timeout");
+
+        QueuedMail mail = repository.findById(id).get();
+        assertNull(mail.getClaim());
+        assertEquals(1, mail.getAttempts());
+        assertEquals("timeout", mail.getLastError());
+        assertEquals(now + 5 * MINUTE, mail.getNextAttempt().getTime());
+        assertEquals(0, repository.claimDue("b", new Date(now + MINUTE),
+                new Date(now + 2 * MINUTE), 10));
+    }
+
+    @Test
+    void deleteSentRemovesOnlyGivenMail() {
+        int sent = enqueue(now);
+        int kept = enqueue(now);
+
+        repository.deleteSent(Collections.singletonList(sent));
+
+        assertFalse(repository.existsById(sent));
+        assertTrue(repository.existsById(kept));
+    }
+
+    private int enqueue(long nextAttempt) {
+        QueuedMail mail = new QueuedMail();
+        mail.setRecipient("user@localhost");
+        mail.setSubject("Тема");
+        mail.setText("Текст");
+        mail.setNextAttempt(new Date(nextAttempt));
+        return repository.save(mail).getId();
+    }
+
+    private static List<Integer> ids(List<QueuedMail> mails) {
+        List<Integer> ids = new ArrayList<>();
+        for (QueuedMail mail : mails)
+            ids.add(mail.getId());
+        return ids;
+    }
+}
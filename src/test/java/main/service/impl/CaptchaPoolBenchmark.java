@@ -0,0 +1,52 @@
+package main.service.impl;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Класс CaptchaPoolBenchmark
+ * Время выдачи капчи из заполненного пула и рисования в потоке запроса.
+ * Не входит в обычный прогон тестов, запускается профилем benchmark:
+ * mvn test -Pbenchmark
+ *
+ * @version 1.0
+ */
+@Tag("benchmark")
+class CaptchaPoolBenchmark {
+    private static final Logger log =
+            LoggerFactory.getLogger(CaptchaPoolBenchmark.class);
+    private static final int TAKES = 100;
+    private static final int WARMUP = 20;
+
+    @Test
+    void pooledAndInlineTake() throws InterruptedException {
+        // пул без фонового потока всегда рисует капчу в потоке запроса
+        CaptchaPool inline = new CaptchaPool(1);
+        for (int i = 0; i < WARMUP; i++)
+            inline.take();
+        long start = System.nanoTime();
+        for (int i = 0; i < TAKES; i++)
+            inline.take();
+        long inlineNanos = System.nanoTime() - start;
+
+        CaptchaPool pooled = new CaptchaPool(TAKES);
+        pooled.start();
+        try {
+            long deadline = System.currentTimeMillis() + 60000;
+            while (pooled.available() < TAKES
+                    && System.currentTimeMillis() < deadline)
+                Thread.sleep(50);
+            start = System.nanoTime();
+            for (int i = 0; i < TAKES; i++)
+                pooled.take();
+            long pooledNanos = System.nanoTime() - start;
+            log.info("Captcha take: inline {} us, pooled {} us",
+                    inlineNanos / 1000 / TAKES, pooledNanos / 1000 / TAKES);
+        }
+        finally {
+            pooled.stop();
+        }
+    }
+}
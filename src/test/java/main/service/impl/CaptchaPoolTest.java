@@ -0,0 +1,58 @@
+package main.service.impl;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Класс CaptchaPoolTest
+ * Капча из пула: JPEG в data URI нужного размера и код к нему. Время
+ * выдачи измеряет CaptchaPoolBenchmark
+ *
+ * @version 1.1
+ */
+class CaptchaPoolTest {
+    private static final String PREFIX = "data:image/jpeg;base64, ";
+
+    @Test
+    void imageIsJpegDataUri() throws IOException {
+        CaptchaPool.Captcha captcha = new CaptchaPool(1).take();
+        assertTrue(captcha.getImage().startsWith(PREFIX));
+        byte[] image = Base64.getDecoder()
+                .decode(captcha.getImage().substring(PREFIX.length()));
+        // маркер начала JPEG
+        assertEquals((byte) 0xFF, image[0]);
+        assertEquals((byte) 0xD8, image[1]);
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(image));
+        assertEquals(100, decoded.getWidth());
+        assertEquals(35, decoded.getHeight());
+        assertFalse(captcha.getCode().isEmpty());
+    }
+
+    @Test
+    void pooledCaptchasAreDistinct() throws InterruptedException {
+        CaptchaPool pool = new CaptchaPool(2);
+        pool.start();
+        try {
+            long deadline = System.currentTimeMillis() + 60000;
+            while (pool.available() < 2
+                    && System.currentTimeMillis() < deadline)
+                Thread.sleep(50);
+            assertEquals(2, pool.available());
+            CaptchaPool.Captcha first = pool.take();
+            CaptchaPool.Captcha second = pool.take();
+            assertNotEquals(first.getImage(), second.getImage());
+            assertFalse(first.getCode().isEmpty());
+            assertFalse(second.getCode().isEmpty());
+        }
+        finally {
+            pool.stop();
+        }
+    }
+}
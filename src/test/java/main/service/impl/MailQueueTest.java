@@ -0,0 +1,235 @@
+package main.service.impl;
+
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetup;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import main.model.QueuedMail;
+import main.repository.QueuedMailRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import javax.mail.internet.MimeMessage;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Класс MailQueueTest
+ * Отправка очереди писем через локальный SMTP-сервер GreenMail на
+ * свободном порту. Таблица mail_queue заменена картой в памяти с той же
+ * логикой запросов, сами запросы проверяет QueuedMailRepositoryTest
+ *
+ * @version 1.1
+ */
+class MailQueueTest {
+    private static final int BATCH_SIZE = 2;
+    private static final long RETRY_DELAY = 1000;
+    private static final long MAX_RETRY_DELAY = 60000;
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final Map<Integer, QueuedMail> rows = new TreeMap<>();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private GreenMail smtp;
+    private int smtpPort;
+    private QueuedMailRepository repository;
+    private JavaMailSenderImpl mailSender;
+    private MailQueue queue;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        smtpPort = freePort();
+        smtp = new GreenMail(
+                new ServerSetup(smtpPort, null, ServerSetup.PROTOCOL_SMTP));
+        smtp.start();
+        repository = tableInMemory();
+        mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(smtpPort);
+        // как spring.mail.default-encoding по умолчанию
+        mailSender.setDefaultEncoding("UTF-8");
+        mailSender.getJavaMailProperties()
+                .setProperty("mail.smtp.from", "blog@localhost");
+        queue = new MailQueue(repository, mailSender, 2000, BATCH_SIZE,
+                600000, RETRY_DELAY, MAX_RETRY_DELAY, MAX_ATTEMPTS,
+                meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        smtp.stop();
+    }
+
+    @Test
+    void sendsQueuedMailInBatches() throws Exception {
+        for (int i = 0; i < 5; i++)
+            queue.enqueue("user" + i + "@localhost", "Тема " + i, "Текст");
+        assertTrue(smtp.getReceivedMessages().length == 0);
+
+        queue.send();
+
+        assertTrue(smtp.waitForIncomingEmail(5000, 5));
+        MimeMessage[] received = smtp.getReceivedMessages();
+        assertEquals(5, received.length);
+        assertEquals("Тема 0", received[0].getSubject());
+        assertTrue(rows.isEmpty());
+        // пачки по 2, 2 и 1 письму
+        verify(repository, times(3)).claimDue(anyString(), any(Date.class),
+                any(Date.class), eq(BATCH_SIZE));
+        assertEquals(0, depth());
+        // длина очереди ведётся без count(*) на каждом запуске
+        verify(repository, never()).count();
+    }
+
+    @Test
+    void retriesWithDoublingDelay() throws Exception {
+        mailSender.setPort(freePort());
+        queue.enqueue("user@localhost", "Тема", "Текст");
+        QueuedMail mail = rows.values().iterator().next();
+
+        long before = System.currentTimeMillis();
+        queue.send();
+        assertEquals(1, mail.getAttempts());
+        assertDelay(mail, before, RETRY_DELAY);
+        assertNotNull(mail.getLastError());
+        assertNull(mail.getClaim());
+        assertEquals(1, depth());
+
+        // до наступления времени повтора письмо не отправляется
+        queue.send();
+        assertEquals(1, mail.getAttempts());
+
+        makeDue(mail);
+        before = System.currentTimeMillis();
+        queue.send();
+        assertEquals(2, mail.getAttempts());
+        assertDelay(mail, before, RETRY_DELAY * 2);
+
+        mailSender.setPort(smtpPort);
+        makeDue(mail);
+        queue.send();
+        assertTrue(smtp.waitForIncomingEmail(5000, 1));
+        assertTrue(rows.isEmpty());
+        assertEquals(0, depth());
+    }
+
+    @Test
+    void dropsMailAfterMaxAttempts() throws Exception {
+        mailSender.setPort(freePort());
+        queue.enqueue("user@localhost", "Тема", "Текст");
+        QueuedMail mail = rows.values().iterator().next();
+        for (int attempt = 1; attempt < MAX_ATTEMPTS; attempt++) {
+            queue.send();
+            assertEquals(attempt, mail.getAttempts());
+            makeDue(mail);
+        }
+
+        queue.send();
+
+        assertTrue(rows.isEmpty());
+        verify(repository).deleteById(mail.getId());
+        assertEquals(0, smtp.getReceivedMessages().length);
+        assertEquals(0, depth());
+    }
+
+    @Test
+    void depthStartsFromTableSize() {
+        queue.enqueue("user@localhost", "Тема", "Текст");
+        MeterRegistry restartedRegistry = new SimpleMeterRegistry();
+        MailQueue restarted = new MailQueue(repository, mailSender, 2000,
+                BATCH_SIZE, 600000, RETRY_DELAY, MAX_RETRY_DELAY, MAX_ATTEMPTS,
+                restartedRegistry);
+        restarted.start();
+        try {
+            assertEquals(1, restartedRegistry.get("mail.queue.depth")
+                    .gauge().value());
+        }
+        finally {
+            restarted.stop();
+        }
+    }
+
+    private double depth() {
+        return meterRegistry.get("mail.queue.depth").gauge().value();
+    }
+
+    private static void assertDelay(QueuedMail mail, long before,
+                                    long delay) {
+        long next = mail.getNextAttempt().getTime();
+        assertTrue(next >= before + delay, "retry is too early");
+        assertTrue(next <= System.currentTimeMillis() + delay,
+                "retry is too late");
+    }
+
+    private static void makeDue(QueuedMail mail) {
+        mail.setNextAttempt(new Date(System.currentTimeMillis() - 1));
+    }
+
+    // свободный порт; пока его не занял GreenMail, на нём никто не слушает
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    // таблица mail_queue: запросы QueuedMailRepository над картой rows
+    private QueuedMailRepository tableInMemory() {
+        QueuedMailRepository table = mock(QueuedMailRepository.class);
+        when(table.save(any(QueuedMail.class))).thenAnswer(call -> {
+            QueuedMail mail = call.getArgument(0);
+            mail.setId(rows.size() + 1);
+            rows.put(mail.getId(), mail);
+            return mail;
+        });
+        when(table.claimDue(anyString(), any(Date.class), any(Date.class),
+                anyInt())).thenAnswer(call -> {
+            String claim = call.getArgument(0);
+            Date now = call.getArgument(1);
+            Date lease = call.getArgument(2);
+            int limit = call.getArgument(3);
+            int claimed = 0;
+            for (QueuedMail mail : rows.values())
+                if (claimed < limit && !mail.getNextAttempt().after(now)) {
+                    mail.setClaim(claim);
+                    mail.setNextAttempt(lease);
+                    claimed++;
+                }
+            return claimed;
+        });
+        when(table.findClaimed(anyString())).thenAnswer(call -> {
+            String claim = call.getArgument(0);
+            List<QueuedMail> claimed = new ArrayList<>();
+            for (QueuedMail mail : rows.values())
+                if (claim.equals(mail.getClaim()))
+                    claimed.add(mail);
+            return claimed;
+        });
+        doAnswer(call -> {
+            Collection<Integer> ids = call.getArgument(0);
+            rows.keySet().removeAll(ids);
+            return null;
+        }).when(table).deleteSent(anyCollection());
+        doAnswer(call -> {
+            Integer id = call.getArgument(0);
+            QueuedMail mail = rows.get(id);
+            mail.setAttempts(mail.getAttempts() + 1);
+            mail.setNextAttempt(call.getArgument(1));
+            mail.setLastError(call.getArgument(2));
+            mail.setClaim(null);
+            return null;
+        }).when(table).postpone(anyInt(), any(Date.class), anyString());
+        doAnswer(call -> {
+            Integer id = call.getArgument(0);
+            rows.remove(id);
+            return null;
+        }).when(table).deleteById(anyInt());
+        when(table.count()).thenAnswer(call -> (long) rows.size());
+        return table;
+    }
+}